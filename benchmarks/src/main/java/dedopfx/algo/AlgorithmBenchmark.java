@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+package dedopfx.algo;
+
+import dedopfx.audio.Harmonics;
+import dedopfx.audio.Waveform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the synthesis hot path, {@link Algorithm#computeOutput()} and the block renderer
+ * {@link AlgorithmSampleInputStream#read(byte[], int, int)}, over partial count, carrier waveform, modulation
+ * and band-limiting.
+ * <p>
+ * Scores are samples per second. {@link #main(String[])} runs the benchmarks through the JMH runner and
+ * relates every score to the real-time budget of 44.1 kHz, cases that cannot be rendered in real-time are
+ * marked with "!". The full parameter matrix takes hours, narrow it with JMH options, e.g.
+ * {@code -p binCount=256 -p waveform=Triangle}. The band-limited carrier is measured with
+ * {@code -p bandLimited=false,true}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AlgorithmBenchmark {
+
+    private static final double SAMPLE_RATE = 44100.;
+    private static final int RECORD_COUNT = 64;
+    private static final int BLOCK_SIZE = 1024;
+
+    @Param({"128", "256", "512"})
+    private int binCount;
+
+    @Param({"OFF", "UNDERTONES", "OVERTONES"})
+    private Harmonics harmonicsMode;
+
+    @Param({"2", "4", "8"})
+    private int partialCount;
+
+    @Param({"Sine", "Square", "Triangle", "Sawtooth",
+            "Sine + Square", "Sine + Triangle", "Sine + Sawtooth",
+            "Square + Triangle", "Square + Sawtooth", "Triangle + Sawtooth"})
+    private String waveform;
+
+    @Param({"false", "true"})
+    private boolean modulationEnabled;
+
+    @Param({"false"})
+    private boolean bandLimited;
+
+    private Algorithm algorithm;
+    private long sampleCount;
+
+    private AlgorithmSampleInputStream inputStream;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final AlgorithmInputs algorithmInputs = createInputs(binCount, harmonicsMode, partialCount,
+                                                             modulationEnabled, getWaveform(waveform), bandLimited);
+        algorithm = new Algorithm(algorithmInputs, null);
+        sampleCount = 0;
+
+        final Transport transport = new Transport(algorithmInputs);
+        inputStream = new AlgorithmSampleInputStream(SAMPLE_RATE, new Algorithm(algorithmInputs, null));
+        inputStream.setTransport(transport);
+        transport.rewind();
+        buffer = new byte[2 * BLOCK_SIZE];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK_SIZE)
+    public void computeOutput(Blackhole blackhole) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            algorithm.setTime(sampleCount / SAMPLE_RATE);
+            blackhole.consume(algorithm.computeOutput());
+            sampleCount++;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK_SIZE)
+    public void readBlock(Blackhole blackhole) throws IOException {
+        blackhole.consume(inputStream.read(buffer, 0, buffer.length));
+        blackhole.consume(buffer);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        final ChainedOptionsBuilder optionsBuilder = new OptionsBuilder().parent(commandLineOptions);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            optionsBuilder.include(AlgorithmBenchmark.class.getName());
+        }
+        final Options options = optionsBuilder.build();
+        final Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.printf("%-120s %14s %10s%n", "Case", "Score [1/s]", "Real-time");
+        for (RunResult result : results) {
+            final BenchmarkParams params = result.getParams();
+            final StringBuilder name = new StringBuilder(params.getBenchmark().replaceAll(".*\\.", ""));
+            for (String key : params.getParamsKeys()) {
+                name.append(' ').append(key).append('=').append(params.getParam(key));
+            }
+            final double score = result.getPrimaryResult().getScore();
+            System.out.printf("%-120s %14.0f %9.1fx%s%n",
+                              name, score, score / SAMPLE_RATE, score < SAMPLE_RATE ? "!" : " ");
+        }
+    }
+
+    static Waveform getWaveform(String name) {
+        for (Waveform waveform : Waveform.WAVEFORMS) {
+            if (waveform.toString().equals(name)) {
+                return waveform;
+            }
+        }
+        throw new IllegalArgumentException("Unknown waveform: " + name);
+    }
+
+    static AlgorithmInputs createInputs(int binCount, Harmonics harmonicsMode, int partialCount,
+                                        boolean modulationEnabled, Waveform waveform, boolean bandLimited) {
+        final Random random = new Random(42);
+        final double[][] sourceValues = new double[RECORD_COUNT][binCount];
+        for (double[] record : sourceValues) {
+            for (int i = 0; i < binCount; i++) {
+                record[i] = random.nextDouble();
+            }
+        }
+        final AlgorithmInputs algorithmInputs = new AlgorithmInputs();
+        algorithmInputs.setSourceValues(sourceValues, 0., 1.);
+        algorithmInputs.minSourceValueProperty().set(0.);
+        algorithmInputs.maxSourceValueProperty().set(1.);
+        algorithmInputs.minRecordIndexProperty().set(0);
+        algorithmInputs.maxRecordIndexProperty().set(RECORD_COUNT - 1);
+        algorithmInputs.setHarmonicsMode(harmonicsMode);
+        algorithmInputs.partialCountProperty().set(partialCount);
+        algorithmInputs.setModulationEnabled(modulationEnabled);
+        algorithmInputs.carrierWaveformProperty().setValue(waveform);
+        algorithmInputs.setBandLimited(bandLimited);
+        return algorithmInputs;
+    }
+}
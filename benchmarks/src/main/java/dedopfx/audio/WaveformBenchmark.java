@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+package dedopfx.audio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the {@link Waveform} implementations with table-based and polynomial alternatives,
+ * for every waveform in {@link Waveform#WAVEFORMS}. Scores are calls per microsecond. The polynomial sine does not
+ * depend on the waveform parameter, compare it with the current implementation at {@code waveform=Sine}.
+ * <p>
+ * {@link WaveformAccuracyReport} in the tests reports the errors of the alternatives.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WaveformBenchmark {
+
+    private static final int PHASE_COUNT = 1 << 12;
+
+    @Param({"Sine", "Square", "Triangle", "Sawtooth",
+            "Sine + Square", "Sine + Triangle", "Sine + Sawtooth",
+            "Square + Triangle", "Square + Sawtooth", "Triangle + Sawtooth"})
+    private String waveform;
+
+    private double[] phases;
+    private Waveform current;
+    private Waveform bandLimited;
+    private Waveform table4096;
+    private Waveform table4096Linear;
+    private Waveform table256Linear;
+    private Waveform polynomialSine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(42);
+        phases = new double[PHASE_COUNT];
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = WaveformAccuracyReport.MAX_PHASE * random.nextDouble();
+        }
+        current = getWaveform(waveform);
+        bandLimited = new WaveformAccuracyReport.BandLimitedWaveform(current, WaveformAccuracyReport.BAND_LIMITED_DT);
+        table4096 = new WaveformAccuracyReport.TableWaveform(current, 4096, false);
+        table4096Linear = new WaveformAccuracyReport.TableWaveform(current, 4096, true);
+        table256Linear = new WaveformAccuracyReport.TableWaveform(current, 256, true);
+        polynomialSine = new WaveformAccuracyReport.PolynomialSine();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHASE_COUNT)
+    public void current(Blackhole blackhole) {
+        compute(current, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHASE_COUNT)
+    public void bandLimited(Blackhole blackhole) {
+        compute(bandLimited, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHASE_COUNT)
+    public void table4096(Blackhole blackhole) {
+        compute(table4096, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHASE_COUNT)
+    public void table4096Linear(Blackhole blackhole) {
+        compute(table4096Linear, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHASE_COUNT)
+    public void table256Linear(Blackhole blackhole) {
+        compute(table256Linear, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHASE_COUNT)
+    public void polynomialSine(Blackhole blackhole) {
+        compute(polynomialSine, blackhole);
+    }
+
+    private void compute(Waveform waveform, Blackhole blackhole) {
+        for (double phase : phases) {
+            blackhole.consume(waveform.compute(phase));
+        }
+    }
+
+    private static Waveform getWaveform(String name) {
+        for (Waveform waveform : Waveform.WAVEFORMS) {
+            if (waveform.toString().equals(name)) {
+                return waveform;
+            }
+        }
+        throw new IllegalArgumentException("Unknown waveform: " + name);
+    }
+}
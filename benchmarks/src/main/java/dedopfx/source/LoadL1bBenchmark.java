@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+package dedopfx.source;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decode throughput of {@link L1bSourceValues#read(File)}, which does the work of
+ * {@link LoadL1bNetCDFFileTask}, on files written by {@link SyntheticL1bFileGenerator}.
+ * <p>
+ * Besides the loads per second, the secondary results {@code records} and {@code megabytes} report records
+ * per second and megabytes of file per second. Run with {@code -prof gc} for the allocation per load
+ * ({@code gc.alloc.rate.norm}) and the garbage collections it causes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class LoadL1bBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int recordCount;
+
+    @Param({"128", "256"})
+    private int binCount;
+
+    private File directory;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("dedopfx-load-benchmark").toFile();
+        file = new File(directory, String.format("synthetic-%d-%d.nc", recordCount, binCount));
+        new SyntheticL1bFileGenerator(recordCount, binCount,
+                                      SyntheticL1bFileGenerator.EchoShape.MIXED, 0.1, 42L).write(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(directory.toPath());
+    }
+
+    @Benchmark
+    public L1bSourceValues read(Throughput throughput) throws IOException {
+        final L1bSourceValues sourceValues = L1bSourceValues.read(file);
+        if (sourceValues.getSourceValues().length != recordCount) {
+            throw new IllegalStateException("Unexpected record count");
+        }
+        throughput.records += recordCount;
+        throughput.megabytes += file.length() / 1e6;
+        return sourceValues;
+    }
+
+    /**
+     * Counts the records and megabytes read, JMH reports them as rates.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long records;
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            records = 0;
+            megabytes = 0.;
+        }
+    }
+}
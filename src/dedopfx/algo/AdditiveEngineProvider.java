@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.algo;
+
+/**
+ * Provides the {@link Algorithm}, which renders every bin as a carrier with optional partials and modulation.
+ */
+public class AdditiveEngineProvider implements SynthesisEngineProvider {
+
+    public static final String ID = "additive";
+
+    private static final String[] PARAMETER_KEYS = {
+            "minSourceValue", "maxSourceValue", "minRecordIndex", "maxRecordIndex", "velocity",
+            "amplitudeWeighting", "tuningSystem", "minFrequency", "maxFrequency", "octaveSubdivisionCount",
+            "octaveCount", "carrierWaveform", "bandLimited", "harmonicsMode", "partialCount",
+            "modulationEnabled", "modulationWaveform", "modulationDepth", "modulationNom", "modulationDenom"};
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Additive";
+    }
+
+    @Override
+    public String[] getParameterKeys() {
+        return PARAMETER_KEYS.clone();
+    }
+
+    @Override
+    public double getCostPerBin() {
+        return 1.;
+    }
+
+    @Override
+    public SynthesisEngine createEngine(AlgorithmInputs algorithmInputs, Algorithm.RecordObserver recordObserver) {
+        return new Algorithm(algorithmInputs, recordObserver);
+    }
+}
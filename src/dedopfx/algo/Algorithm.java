@@ -27,9 +27,22 @@ package dedopfx.algo;
 import dedopfx.audio.Harmonics;
 import dedopfx.audio.TuningSystem;
 import dedopfx.audio.Waveform;
+import dedopfx.jfr.RecordChangeEvent;
 import javafx.beans.value.ChangeListener;
 
-public class Algorithm {
+public class Algorithm implements SynthesisEngine {
+
+    /**
+     * Rate at which the modulation stage evaluates the modulators, every 4 samples at 44.1 kHz.
+     * The phase offsets are linearly interpolated in between.
+     */
+    public static final double CONTROL_RATE = 44100. / 4;
+    /**
+     * Modulators faster than this would be distorted by the interpolation and are evaluated for every sample.
+     * At 16 control points per period, the interpolated phase offset stays within 2% of the modulation depth.
+     */
+    public static final double MAX_CONTROL_RATE_MODULATION_FREQUENCY = CONTROL_RATE / 16;
+    public static final double DEFAULT_SAMPLE_RATE = 44100.;
 
     public interface RecordObserver {
         void onRecord(int recordIndex, int recordCount, double[] inputSamples);
@@ -38,10 +51,20 @@ public class Algorithm {
     private final AlgorithmInputs algorithmInputs;
     private final RecordObserver recordObserver;
 
+    private double sampleRate = DEFAULT_SAMPLE_RATE;
     private double time;
-    private int currentRecordIndex = -1;
+    private double recordPosition;
+    private double fadeRecordPosition;
+    private double fadeWeight = 1.;
+    // Volatile, so that monitors can read it from other threads
+    private volatile int currentRecordIndex = -1;
     private double[] normalizedSourceValues;
+    private double[] fadeSourceValues;
     private double[] carrierFrequencies;
+    // Phase offsets of the modulation stage at the control points before and after the current time
+    private long controlIndex = Long.MIN_VALUE;
+    private double[] controlPhases1;
+    private double[] controlPhases2;
 
     public Algorithm(AlgorithmInputs algorithmInputs, RecordObserver recordObserver) {
         this.algorithmInputs = algorithmInputs;
@@ -64,18 +87,78 @@ public class Algorithm {
         updateCarrierFrequencies();
     }
 
+    @Override
+    public AlgorithmInputs getAlgorithmInputs() {
+        return algorithmInputs;
+    }
+
+    /**
+     * @return The index of the record currently rendered, or -1.
+     */
+    @Override
+    public int getCurrentRecordIndex() {
+        return currentRecordIndex;
+    }
+
+    /**
+     * Sets the sample rate the output is rendered at, used to band-limit the carriers.
+     */
+    @Override
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
     public void setTime(double time) {
         this.time = time;
+        this.recordPosition = algorithmInputs.getVelocity() * time;
+        this.fadeWeight = 1.;
+        updateNormalizedSourceValues();
+    }
+
+    /**
+     * Sets the time used by the oscillators and takes the record position from the given transport.
+     */
+    @Override
+    public void setTime(double time, Transport transport) {
+        this.time = time;
+        this.recordPosition = transport.getRecordPosition();
+        this.fadeRecordPosition = transport.getFadeRecordPosition();
+        this.fadeWeight = transport.getFadeWeight();
         updateNormalizedSourceValues();
     }
 
     public double computeOutput() {
+        double value = computeUnclippedOutput();
+        if (value < -1.) {
+            value = -1.;
+        }
+        if (value > 1.) {
+            value = 1.;
+        }
+        return value;
+    }
+
+    public double computeUnclippedOutput() {
+        return computePreGainOutput() * algorithmInputs.getGain();
+    }
+
+    /**
+     * @return The synthesized output before the gain is applied, so gain changes do not require re-synthesis.
+     */
+    @Override
+    public double computePreGainOutput() {
         final double[][] sourceValues = algorithmInputs.getSourceValues();
-        final double gain = algorithmInputs.getGain();
         final double amplitudeWeighting = algorithmInputs.getAmplitudeWeighting();
         final Waveform carrierWaveform = algorithmInputs.getCarrierWaveform();
         final Harmonics harmonicsMode = algorithmInputs.getHarmonicsMode();
         final int partialCount = algorithmInputs.getPartialCount();
+        final boolean bandLimited = algorithmInputs.isBandLimited();
         final boolean modulationEnabled = algorithmInputs.isModulationEnabled();
         final Waveform modulationWaveform = algorithmInputs.getModulationWaveform();
         final double modulationDepth = algorithmInputs.getModulationDepth();
@@ -94,8 +177,16 @@ public class Algorithm {
 
         final boolean harmonicsEnabled = algorithmInputs.getHarmonicsMode() != Harmonics.OFF;
         final double modulationRatio = modulationNom / modulationDenom;
+        final int sampleCount = sourceValues[0].length;
+        final double nyquistFrequency = 0.5 * sampleRate;
+        final double samplePeriod = 1. / sampleRate;
+
+        double controlWeight = 0.;
+        if (modulationEnabled) {
+            controlWeight = updateControlPhases(sampleCount, harmonicsMode, partialCount,
+                    modulationWaveform, modulationDepth, modulationRatio);
+        }
 
-        double carrierFrequency = 0;
         double value;
         double valueSum = 0.;
         double amplitude;
@@ -104,32 +195,33 @@ public class Algorithm {
         double phase;
         int partialIndex;
 
-        final int sampleCount = sourceValues[0].length;
         for (int i = 0; i < sampleCount; i++) {
             partialIndex = harmonicsEnabled ? i % partialCount : 0;
-            if (partialIndex == 0) {
-                carrierFrequency = carrierFrequencies[i];
-            }
 
             amplitude = normalizedSourceValues[i];
             if (amplitude > 0.) {
                 amplitude /= partialIndex + 1;
-
-                if (harmonicsMode == Harmonics.OVERTONES) {
-                    frequency = carrierFrequency * (partialIndex + 1);
-                } else if (harmonicsMode == Harmonics.UNDERTONES) {
-                    frequency = carrierFrequency / (partialIndex + 1);
-                } else {
-                    frequency = carrierFrequency;
+                frequency = getPartialFrequency(carrierFrequencies[i - partialIndex], harmonicsMode, partialIndex);
+                amplitudeSum += amplitude;
+                if (bandLimited && frequency >= nyquistFrequency) {
+                    // Would only add aliases, but still counts for the normalization, so the level does not jump
+                    continue;
                 }
 
                 phase = 0.;
                 if (modulationEnabled) {
-                    phase += modulationDepth * modulationWaveform.compute(modulationRatio * frequency * time);
+                    if (modulationRatio * frequency <= MAX_CONTROL_RATE_MODULATION_FREQUENCY) {
+                        phase += controlPhases1[i] + controlWeight * (controlPhases2[i] - controlPhases1[i]);
+                    } else {
+                        phase += modulationDepth * modulationWaveform.compute(modulationRatio * frequency * time);
+                    }
                 }
 
-                valueSum += amplitude * carrierWaveform.compute(frequency * time + phase);
-                amplitudeSum += amplitude;
+                if (bandLimited) {
+                    valueSum += amplitude * carrierWaveform.compute(frequency * time + phase, frequency * samplePeriod);
+                } else {
+                    valueSum += amplitude * carrierWaveform.compute(frequency * time + phase);
+                }
             }
         }
 
@@ -140,27 +232,67 @@ public class Algorithm {
             value = 0;
         }
 
-        value *= gain;
+        return value;
+    }
 
-        if (value < -1.) {
-            value = -1.;
-            // todo: signal bottomClip clip
-            // System.out.println("bottom clip at " + currentRecordIndex);
+    private static double getPartialFrequency(double carrierFrequency, Harmonics harmonicsMode, int partialIndex) {
+        if (harmonicsMode == Harmonics.OVERTONES) {
+            return carrierFrequency * (partialIndex + 1);
+        } else if (harmonicsMode == Harmonics.UNDERTONES) {
+            return carrierFrequency / (partialIndex + 1);
+        } else {
+            return carrierFrequency;
         }
-        if (value > 1.) {
-            value = 1.;
-            // todo: signal top clip
-            // System.out.println("top clip at " + currentRecordIndex);
+    }
+
+    /**
+     * The control-rate stage: evaluates the modulators of all bins at the control points enclosing the current
+     * time, only when the time has moved past the later one.
+     *
+     * @return The weight of the later control point at the current time.
+     */
+    private double updateControlPhases(int sampleCount, Harmonics harmonicsMode, int partialCount,
+                                       Waveform modulationWaveform, double modulationDepth, double modulationRatio) {
+        if (controlPhases1 == null || controlPhases1.length != sampleCount) {
+            controlPhases1 = new double[sampleCount];
+            controlPhases2 = new double[sampleCount];
+            controlIndex = Long.MIN_VALUE;
         }
+        final double controlPosition = time * CONTROL_RATE;
+        final long controlIndex = (long) Math.floor(controlPosition);
+        if (controlIndex != this.controlIndex) {
+            if (controlIndex == this.controlIndex + 1) {
+                final double[] controlPhases = controlPhases1;
+                controlPhases1 = controlPhases2;
+                controlPhases2 = controlPhases;
+            } else {
+                computeControlPhases(controlIndex / CONTROL_RATE, harmonicsMode, partialCount,
+                        modulationWaveform, modulationDepth, modulationRatio, controlPhases1);
+            }
+            computeControlPhases((controlIndex + 1) / CONTROL_RATE, harmonicsMode, partialCount,
+                    modulationWaveform, modulationDepth, modulationRatio, controlPhases2);
+            this.controlIndex = controlIndex;
+        }
+        return controlPosition - controlIndex;
+    }
 
-        return value;
+    private void computeControlPhases(double controlTime, Harmonics harmonicsMode, int partialCount,
+                                      Waveform modulationWaveform, double modulationDepth, double modulationRatio,
+                                      double[] controlPhases) {
+        final boolean harmonicsEnabled = harmonicsMode != Harmonics.OFF;
+        for (int i = 0; i < controlPhases.length; i++) {
+            final int partialIndex = harmonicsEnabled ? i % partialCount : 0;
+            final double frequency = getPartialFrequency(carrierFrequencies[i - partialIndex], harmonicsMode, partialIndex);
+            if (modulationRatio * frequency <= MAX_CONTROL_RATE_MODULATION_FREQUENCY) {
+                controlPhases[i] = modulationDepth * modulationWaveform.compute(modulationRatio * frequency * controlTime);
+            }
+        }
     }
 
     private void updateNormalizedSourceValues() {
         final double[][] sourceValues = algorithmInputs.getSourceValues();
         final double minSourceValue = algorithmInputs.getMinSourceValue();
         final double maxSourceValue = algorithmInputs.getMaxSourceValue();
-        final double velocity = algorithmInputs.getVelocity();
         int minRecordIndex = algorithmInputs.getMinRecordIndex();
         int maxRecordIndex = algorithmInputs.getMaxRecordIndex();
         if (sourceValues != null) {
@@ -182,33 +314,33 @@ public class Algorithm {
                 minRecordIndex = maxRecordIndex;
                 maxRecordIndex = t;
             }
-            final int selectedRecordCount = 1 + maxRecordIndex - minRecordIndex;
-            final double recordIndexFloat = velocity * time;
-            final double recordIndexFloor = Math.floor(recordIndexFloat);
-            final double recordWeight = recordIndexFloat - recordIndexFloor;
-            final int recordIndex1 = minRecordIndex + (int) (recordIndexFloor % selectedRecordCount);
-            final int recordIndex2 = recordIndex1 + 1 <= maxRecordIndex ? recordIndex1 + 1 : recordIndex1;
-            final double[] record1 = sourceValues[recordIndex1];
-            final double[] record2 = sourceValues[recordIndex2];
-            final int sampleCount = record1.length;
+            final int sampleCount = sourceValues[0].length;
             if (normalizedSourceValues == null || normalizedSourceValues.length != sampleCount) {
                 normalizedSourceValues = new double[sampleCount];
             }
-            for (int i = 0; i < sampleCount; i++) {
-                final double sourceValue = record1[i] + recordWeight * (record2[i] - record1[i]);
-                double normalizedSourceValue = (sourceValue - minSourceValue) / (maxSourceValue - minSourceValue);
-                if (normalizedSourceValue < 0.) {
-                    normalizedSourceValue = 0.;
+            final int recordIndex1 = interpolateRecord(sourceValues, minRecordIndex, maxRecordIndex,
+                    minSourceValue, maxSourceValue, recordPosition, normalizedSourceValues);
+            if (fadeWeight < 1.) {
+                if (fadeSourceValues == null || fadeSourceValues.length != sampleCount) {
+                    fadeSourceValues = new double[sampleCount];
                 }
-                if (normalizedSourceValue > 1.) {
-                    normalizedSourceValue = 1.;
+                interpolateRecord(sourceValues, minRecordIndex, maxRecordIndex,
+                        minSourceValue, maxSourceValue, fadeRecordPosition, fadeSourceValues);
+                for (int i = 0; i < sampleCount; i++) {
+                    normalizedSourceValues[i] = fadeSourceValues[i]
+                            + fadeWeight * (normalizedSourceValues[i] - fadeSourceValues[i]);
                 }
-                normalizedSourceValues[i] = normalizedSourceValue;
             }
             if (recordIndex1 != currentRecordIndex) {
                 if (recordObserver != null) {
                     recordObserver.onRecord(recordIndex1, sourceValues.length, normalizedSourceValues);
                 }
+                if (RecordChangeEvent.isRecording()) {
+                    final RecordChangeEvent recordChangeEvent = new RecordChangeEvent();
+                    recordChangeEvent.recordIndex = recordIndex1;
+                    recordChangeEvent.recordCount = sourceValues.length;
+                    recordChangeEvent.commit();
+                }
                 currentRecordIndex = recordIndex1;
             }
         } else {
@@ -217,6 +349,36 @@ public class Algorithm {
         }
     }
 
+    /**
+     * Interpolates the normalized values at the given record position, relative to the minimum record index
+     * and wrapped around at the end of the selected records.
+     *
+     * @return The index of the first of the two interpolated records.
+     */
+    private static int interpolateRecord(double[][] sourceValues, int minRecordIndex, int maxRecordIndex,
+                                         double minSourceValue, double maxSourceValue,
+                                         double recordPosition, double[] normalizedSourceValues) {
+        final int selectedRecordCount = 1 + maxRecordIndex - minRecordIndex;
+        final double recordIndexFloor = Math.floor(recordPosition);
+        final double recordWeight = recordPosition - recordIndexFloor;
+        final int recordIndex1 = minRecordIndex + (int) (recordIndexFloor % selectedRecordCount);
+        final int recordIndex2 = recordIndex1 + 1 <= maxRecordIndex ? recordIndex1 + 1 : recordIndex1;
+        final double[] record1 = sourceValues[recordIndex1];
+        final double[] record2 = sourceValues[recordIndex2];
+        for (int i = 0; i < normalizedSourceValues.length; i++) {
+            final double sourceValue = record1[i] + recordWeight * (record2[i] - record1[i]);
+            double normalizedSourceValue = (sourceValue - minSourceValue) / (maxSourceValue - minSourceValue);
+            if (normalizedSourceValue < 0.) {
+                normalizedSourceValue = 0.;
+            }
+            if (normalizedSourceValue > 1.) {
+                normalizedSourceValue = 1.;
+            }
+            normalizedSourceValues[i] = normalizedSourceValue;
+        }
+        return recordIndex1;
+    }
+
 
     private void updateCarrierFrequencies() {
         final double[][] sourceValues = algorithmInputs.getSourceValues();
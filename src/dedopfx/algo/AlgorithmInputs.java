@@ -42,7 +42,11 @@ public class AlgorithmInputs {
     public static final int DEFAULT_MAX_RECORD_INDEX = -1;
     public static final double DEFAULT_GAIN = 0.1;
     public static final int DEFAULT_VELOCITY = 16;
+    public static final int MAX_VELOCITY = 32;
+    public static final boolean DEFAULT_LOW_LATENCY = false;
+    public static final String DEFAULT_ENGINE = SynthesisEngines.DEFAULT_ENGINE_ID;
     public static final Waveform DEFAULT_WAVEFORM = Waveform.TRIANGLE;
+    public static final boolean DEFAULT_BAND_LIMITED = true;
     public static final TuningSystem DEFAULT_TUNING_SYSTEM = TuningSystem.LINEAR;
     public static final double DEFAULT_MIN_FREQUENCY = 0.5 * 440;
     public static final double DEFAULT_MAX_FREQUENCY = 10 * 440;
@@ -57,6 +61,7 @@ public class AlgorithmInputs {
     public static final int DEFAULT_MODULATION_DENOM = 8;
 
     private final Property<double[][]> sourceValues = new SimpleObjectProperty<>(null);
+    private final Property<RecordPyramid> recordPyramid = new SimpleObjectProperty<>(null);
     private final DoubleProperty minContainedSourceValue = new SimpleDoubleProperty(0);
     private final DoubleProperty maxContainedSourceValue = new SimpleDoubleProperty(-1);
 
@@ -67,6 +72,8 @@ public class AlgorithmInputs {
     private final IntegerProperty maxRecordIndex = new SimpleIntegerProperty(DEFAULT_MAX_RECORD_INDEX);
     private final DoubleProperty gain = new SimpleDoubleProperty(DEFAULT_GAIN);
     private final IntegerProperty velocity = new SimpleIntegerProperty(DEFAULT_VELOCITY);
+    private final BooleanProperty lowLatency = new SimpleBooleanProperty(DEFAULT_LOW_LATENCY);
+    private final StringProperty engine = new SimpleStringProperty(DEFAULT_ENGINE);
     private final Property<TuningSystem> tuningSystem = new SimpleObjectProperty<>(DEFAULT_TUNING_SYSTEM);
     private final DoubleProperty minFrequency = new SimpleDoubleProperty(DEFAULT_MIN_FREQUENCY);
     private final DoubleProperty maxFrequency = new SimpleDoubleProperty(DEFAULT_MAX_FREQUENCY);
@@ -74,6 +81,7 @@ public class AlgorithmInputs {
     private final IntegerProperty octaveCount = new SimpleIntegerProperty(DEFAULT_OCTAVE_COUNT);
     private final DoubleProperty amplitudeWeighting = new SimpleDoubleProperty(DEFAULT_AMPLITUDE_SUM_RATIO);
     private final Property<Waveform> carrierWaveform = new SimpleObjectProperty<>(DEFAULT_WAVEFORM);
+    private final BooleanProperty bandLimited = new SimpleBooleanProperty(DEFAULT_BAND_LIMITED);
     private final Property<Waveform> modulationWaveform = new SimpleObjectProperty<>(DEFAULT_WAVEFORM);
     private final Property<Harmonics> harmonicsMode = new SimpleObjectProperty<>(DEFAULT_HARMONICS_MODE);
     private final IntegerProperty partialCount = new SimpleIntegerProperty(DEFAULT_PARTIALS_COUNT);
@@ -84,6 +92,7 @@ public class AlgorithmInputs {
 
     public void setDefaults() {
         sourceValues.setValue(null);
+        recordPyramid.setValue(null);
         minContainedSourceValue.setValue(0.);
         maxContainedSourceValue.setValue(1.);
 
@@ -94,6 +103,8 @@ public class AlgorithmInputs {
         maxRecordIndex.setValue(DEFAULT_MAX_RECORD_INDEX);
         gain.setValue(DEFAULT_GAIN);
         velocity.setValue(DEFAULT_VELOCITY);
+        lowLatency.setValue(DEFAULT_LOW_LATENCY);
+        engine.setValue(DEFAULT_ENGINE);
         amplitudeWeighting.setValue(DEFAULT_AMPLITUDE_SUM_RATIO);
         tuningSystem.setValue(DEFAULT_TUNING_SYSTEM);
         minFrequency.setValue(DEFAULT_MIN_FREQUENCY);
@@ -101,6 +112,7 @@ public class AlgorithmInputs {
         octaveSubdivisionCount.setValue(DEFAULT_OCTAVE_SUBDIVISION_COUNT);
         octaveCount.setValue(DEFAULT_OCTAVE_COUNT);
         carrierWaveform.setValue(DEFAULT_WAVEFORM);
+        bandLimited.setValue(DEFAULT_BAND_LIMITED);
         harmonicsMode.setValue(DEFAULT_HARMONICS_MODE);
         partialCount.setValue(DEFAULT_PARTIALS_COUNT);
         modulationEnabled.setValue(DEFAULT_MODULATION_ENABLED);
@@ -119,6 +131,8 @@ public class AlgorithmInputs {
         store.put("maxRecordIndex", maxRecordIndex.get());
         store.put("gain", gain.get());
         store.put("velocity", velocity.get());
+        store.put("lowLatency", lowLatency.get());
+        store.put("engine", engine.get());
         store.put("amplitudeWeighting", amplitudeWeighting.get());
         store.put("tuningSystem", tuningSystem.getValue());
         store.put("minFrequency", minFrequency.get());
@@ -126,6 +140,7 @@ public class AlgorithmInputs {
         store.put("octaveSubdivisionCount", octaveSubdivisionCount.get());
         store.put("octaveCount", octaveCount.get());
         store.put("carrierWaveform", carrierWaveform.getValue());
+        store.put("bandLimited", bandLimited.get());
         store.put("harmonicsMode", harmonicsMode.getValue());
         store.put("partialCount", partialCount.get());
         store.put("modulationEnabled", modulationEnabled.get());
@@ -138,12 +153,15 @@ public class AlgorithmInputs {
     public void fromStore(Store store) {
         sourceFile.setValue(store.get("sourceFile", sourceFile.getValue()));
         sourceValues.setValue(null);
+        recordPyramid.setValue(null);
         minSourceValue.set(store.get("minSourceValue", DEFAULT_MIN_SOURCE_VALUE));
         maxSourceValue.set(store.get("maxSourceValue", DEFAULT_MAX_SOURCE_VALUE));
         minRecordIndex.set(store.get("minRecordIndex", DEFAULT_MIN_RECORD_INDEX));
         maxRecordIndex.set(store.get("maxRecordIndex", DEFAULT_MAX_RECORD_INDEX));
         gain.set(store.get("gain", DEFAULT_GAIN));
         velocity.set(store.get("velocity", DEFAULT_VELOCITY));
+        lowLatency.set(store.get("lowLatency", DEFAULT_LOW_LATENCY));
+        engine.set(store.get("engine", DEFAULT_ENGINE));
         amplitudeWeighting.set(store.get("amplitudeWeighting", DEFAULT_AMPLITUDE_SUM_RATIO));
         tuningSystem.setValue(store.get("tuningSystem", DEFAULT_TUNING_SYSTEM, TuningSystem.values()));
         minFrequency.set(store.get("minFrequency", DEFAULT_MIN_FREQUENCY));
@@ -151,6 +169,7 @@ public class AlgorithmInputs {
         octaveSubdivisionCount.set(store.get("octaveSubdivisionCount", DEFAULT_OCTAVE_SUBDIVISION_COUNT));
         octaveCount.set(store.get("octaveCount", DEFAULT_OCTAVE_COUNT));
         carrierWaveform.setValue(store.get("carrierWaveform", DEFAULT_WAVEFORM, Waveform.WAVEFORMS));
+        bandLimited.set(store.get("bandLimited", DEFAULT_BAND_LIMITED));
         harmonicsMode.setValue(store.get("harmonicsMode", DEFAULT_HARMONICS_MODE, Harmonics.values()));
         partialCount.set(store.get("partialCount", DEFAULT_PARTIALS_COUNT));
         modulationEnabled.set(store.get("modulationEnabled", DEFAULT_MODULATION_ENABLED));
@@ -178,6 +197,18 @@ public class AlgorithmInputs {
         this.maxContainedSourceValue.set(maxContainedSourceValue);
     }
 
+    public RecordPyramid getRecordPyramid() {
+        return recordPyramid.getValue();
+    }
+
+    public Property<RecordPyramid> recordPyramidProperty() {
+        return recordPyramid;
+    }
+
+    public void setRecordPyramid(RecordPyramid recordPyramid) {
+        this.recordPyramid.setValue(recordPyramid);
+    }
+
     public double getMinContainedSourceValue() {
         return minContainedSourceValue.get();
     }
@@ -262,6 +293,33 @@ public class AlgorithmInputs {
         return velocity;
     }
 
+    public boolean isLowLatency() {
+        return lowLatency.get();
+    }
+
+    public BooleanProperty lowLatencyProperty() {
+        return lowLatency;
+    }
+
+    public void setLowLatency(boolean lowLatency) {
+        this.lowLatency.set(lowLatency);
+    }
+
+    /**
+     * @return The identifier of the selected {@link SynthesisEngineProvider}.
+     */
+    public String getEngine() {
+        return engine.get();
+    }
+
+    public StringProperty engineProperty() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine.set(engine);
+    }
+
     public TuningSystem getTuningSystem() {
         return tuningSystem.getValue();
     }
@@ -310,6 +368,18 @@ public class AlgorithmInputs {
         return carrierWaveform;
     }
 
+    public boolean isBandLimited() {
+        return bandLimited.get();
+    }
+
+    public BooleanProperty bandLimitedProperty() {
+        return bandLimited;
+    }
+
+    public void setBandLimited(boolean bandLimited) {
+        this.bandLimited.set(bandLimited);
+    }
+
     public double getAmplitudeWeighting() {
         return amplitudeWeighting.get();
     }
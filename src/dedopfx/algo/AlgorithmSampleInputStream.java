@@ -24,18 +24,137 @@
 
 package dedopfx.algo;
 
+import dedopfx.audio.LevelMeter;
+import dedopfx.audio.PlaybackTimeline;
 import dedopfx.audio.SampleInputStream;
+import dedopfx.audio.SpectrumAnalyzer;
+import dedopfx.audio.WavRecorder;
+import dedopfx.store.HashStore;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+
+/**
+ * Renders the output of a {@link SynthesisEngine} as 16 bit samples.
+ * <p>
+ * The optional collaborators (meters, analyzers, transport, recorder and render cache) must be set before
+ * the first sample is read.
+ * <p>
+ * If a {@link RenderCache} and a {@link Transport} are set, playback that has run uninterrupted since the
+ * start of the session is "canonical": output frame, oscillator time and record position correspond exactly,
+ * so the output is fully determined by the settings. Canonical segments are written to the cache while
+ * they are rendered, and played from the cache instead of being rendered once they are there.
+ * A seek into cached audio crossfades from the rendered output into the cached one.
+ * <p>
+ * Samples are synthesized before the gain is applied. The gain, clipping and 16 bit conversion form a cheap
+ * final stage, so the cache holds the pre-gain signal and gain changes do not invalidate it.
+ */
 public class AlgorithmSampleInputStream extends SampleInputStream {
     private static final int MAX_SAMPLE_VALUE = Short.MAX_VALUE;
+    private static final long SEGMENT_MASK = RenderCache.SEGMENT_SIZE - 1;
+    // Settings that only affect the final stage or playback, but not the synthesized signal
+    private static final String[] POST_SYNTHESIS_KEYS = {"lowLatency", "gain"};
 
     private final double sampleRate;
-    private final Algorithm algorithm;
+    private final SynthesisEngine algorithm;
+    private LevelMeter levelMeter;
+    private SpectrumAnalyzer spectrumAnalyzer;
+    private PlaybackTimeline playbackTimeline;
+    private Transport transport;
+    private WavRecorder wavRecorder;
+    private RenderCache renderCache;
+    private long frameCounter;
     private long timeCounter;
+    private double gain;
+
+    private double blockPeak;
+    private double blockSumOfSquares;
+    private int blockSampleCount;
+    private int blockTopClipCount;
+    private int blockBottomClipCount;
 
-    public AlgorithmSampleInputStream(double sampleRate, Algorithm algorithm) {
+    // Render cache state, see setRenderCache()
+    private final HashStore cacheKeyStore = new HashStore(POST_SYNTHESIS_KEYS);
+    private long sourceFileLength;
+    private long sourceFileLastModified;
+    private long cacheKey;
+    private long canonicalFrame = -1;
+    private long seekCount;
+    private FloatBuffer cachedSegment;
+    private int crossfadeFrameCount;
+    private int crossfadeFrameIndex;
+    private FloatBuffer captureBuffer;
+    private long captureSegmentIndex;
+    private int cachedRecordIndex = -1;
+
+    public AlgorithmSampleInputStream(double sampleRate, SynthesisEngine algorithm) {
         this.sampleRate = sampleRate;
         this.algorithm = algorithm;
+        algorithm.setSampleRate(sampleRate);
+    }
+
+    public void setLevelMeter(LevelMeter levelMeter) {
+        this.levelMeter = levelMeter;
+    }
+
+    public void setSpectrumAnalyzer(SpectrumAnalyzer spectrumAnalyzer) {
+        this.spectrumAnalyzer = spectrumAnalyzer;
+        if (spectrumAnalyzer != null) {
+            spectrumAnalyzer.setSampleRate(sampleRate);
+        }
+    }
+
+    public void setPlaybackTimeline(PlaybackTimeline playbackTimeline) {
+        this.playbackTimeline = playbackTimeline;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public void setWavRecorder(WavRecorder wavRecorder) {
+        this.wavRecorder = wavRecorder;
+    }
+
+    /**
+     * Sets the render cache. Only used together with a transport.
+     */
+    public void setRenderCache(RenderCache renderCache) {
+        this.renderCache = renderCache;
+        final File sourceFile = algorithm.getAlgorithmInputs().getSourceFile();
+        if (sourceFile != null) {
+            sourceFileLength = sourceFile.length();
+            sourceFileLastModified = sourceFile.lastModified();
+        }
+        cacheKey = computeCacheKey();
+        canonicalFrame = 0;
+        renderCache.prefetch(cacheKey, 0);
+        enterSegment();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (renderCache != null && transport != null) {
+            checkCanonical();
+        }
+        gain = algorithm.getAlgorithmInputs().getGain();
+        final int n = super.read(b, off, len);
+        if (levelMeter != null && blockSampleCount > 0) {
+            levelMeter.update(blockPeak, blockSumOfSquares, blockSampleCount, blockTopClipCount, blockBottomClipCount);
+        }
+        if (spectrumAnalyzer != null) {
+            spectrumAnalyzer.publish();
+        }
+        if (wavRecorder != null && n > 0) {
+            wavRecorder.write(b, off, n);
+        }
+        blockPeak = 0.;
+        blockSumOfSquares = 0.;
+        blockSampleCount = 0;
+        blockTopClipCount = 0;
+        blockBottomClipCount = 0;
+        return n;
     }
 
     protected boolean hasMoreSamples() {
@@ -43,11 +162,222 @@ public class AlgorithmSampleInputStream extends SampleInputStream {
     }
 
     protected short nextSample() {
+        if (playbackTimeline != null) {
+            playbackTimeline.setRenderedFrame(frameCounter);
+        }
+        frameCounter++;
+
+        if (renderCache != null && transport != null) {
+            return toSample(gain * nextCanonicalSample());
+        }
+        return toSample(gain * renderSample());
+    }
+
+    private double renderSample() {
         final double time = timeCounter / sampleRate; // seconds
         timeCounter++;
+        if (transport != null) {
+            transport.advance(sampleRate);
+            algorithm.setTime(time, transport);
+            return transport.getOutputWeight() * algorithm.computePreGainOutput();
+        }
         algorithm.setTime(time);
-        double output = algorithm.computeOutput();
+        return algorithm.computePreGainOutput();
+    }
+
+    private short toSample(double output) {
+        final double magnitude = Math.abs(output);
+        if (magnitude > blockPeak) {
+            blockPeak = magnitude;
+        }
+        if (output < -1.) {
+            output = -1.;
+            blockBottomClipCount++;
+        }
+        if (output > 1.) {
+            output = 1.;
+            blockTopClipCount++;
+        }
+        blockSumOfSquares += output * output;
+        blockSampleCount++;
+        if (spectrumAnalyzer != null) {
+            spectrumAnalyzer.put((float) output);
+        }
         int currentSample = (int) (MAX_SAMPLE_VALUE * output);
         return (short) currentSample;
     }
+
+    /**
+     * @return The next pre-gain output, rendered or played from the cache.
+     */
+    private double nextCanonicalSample() {
+        if (cachedSegment != null && crossfadeFrameIndex >= crossfadeFrameCount) {
+            // Playing from the cache, only the transport and the record observer are kept up to date
+            final float output = cachedSegment.get((int) (canonicalFrame & SEGMENT_MASK));
+            transport.advance(sampleRate);
+            timeCounter = canonicalFrame + 1;
+            if (transport.getSeekCount() != seekCount) {
+                // Rendering takes over at the current time, the transport fades to the new position
+                seekCount = transport.getSeekCount();
+                seekCanonicalFrame();
+            } else {
+                final int recordIndex = (int) transport.getRecordPosition();
+                if (recordIndex != cachedRecordIndex) {
+                    cachedRecordIndex = recordIndex;
+                    algorithm.setTime(canonicalFrame / sampleRate, transport);
+                }
+            }
+            advanceCanonicalFrame();
+            return output;
+        }
+
+        double output = renderSample();
+        if (transport.getSeekCount() != seekCount) {
+            seekCount = transport.getSeekCount();
+            seekCanonicalFrame();
+        }
+        if (cachedSegment != null) {
+            // Crossfading from the rendered output into the cached one after a seek
+            final double weight = (crossfadeFrameIndex + 1.) / (crossfadeFrameCount + 1.);
+            final double cachedOutput = cachedSegment.get((int) (canonicalFrame & SEGMENT_MASK));
+            output += weight * (cachedOutput - output);
+            crossfadeFrameIndex++;
+            if (crossfadeFrameIndex == crossfadeFrameCount) {
+                timeCounter = canonicalFrame + 1;
+                cachedRecordIndex = -1;
+            }
+        }
+        // Rounded like the cached samples, so rendered and cached audio are identical
+        final float roundedOutput = (float) output;
+        if (captureBuffer != null) {
+            captureBuffer.put((int) (canonicalFrame & SEGMENT_MASK), roundedOutput);
+        }
+        advanceCanonicalFrame();
+        return roundedOutput;
+    }
+
+    private void advanceCanonicalFrame() {
+        if (canonicalFrame < 0) {
+            return;
+        }
+        canonicalFrame++;
+        if ((canonicalFrame & SEGMENT_MASK) == 0) {
+            if (captureBuffer != null) {
+                renderCache.putSegment(cacheKey, captureSegmentIndex, captureBuffer);
+                captureBuffer = null;
+            }
+            enterSegment();
+        }
+    }
+
+    private void enterSegment() {
+        final long segmentIndex = canonicalFrame >> RenderCache.SEGMENT_SHIFT;
+        final FloatBuffer segment = renderCache.getSegment(cacheKey, segmentIndex);
+        if (segment != null) {
+            if (cachedSegment == null) {
+                cachedRecordIndex = -1;
+            }
+            cachedSegment = segment;
+        } else if (crossfadeFrameIndex < crossfadeFrameCount) {
+            // The rendered part of a crossfade is not at the canonical time, so it cannot continue without the cache
+            leaveCanonical();
+            return;
+        } else {
+            cachedSegment = null;
+            if ((canonicalFrame & SEGMENT_MASK) == 0) {
+                captureBuffer = renderCache.acquireBuffer();
+                captureSegmentIndex = segmentIndex;
+            }
+        }
+        renderCache.prefetch(cacheKey, segmentIndex + 1);
+    }
+
+    private void seekCanonicalFrame() {
+        leaveCanonical();
+        final double velocity = algorithm.getAlgorithmInputs().getVelocity();
+        if (velocity <= 0. || transport.isPaused()) {
+            return;
+        }
+        // The transport has already been advanced for the current frame, so the playhead is one frame ahead
+        final long nextFrame = Math.max(1, (long) Math.ceil(transport.getRecordPosition() * sampleRate / velocity));
+        final long frame = nextFrame - 1;
+        final long segmentIndex = frame >> RenderCache.SEGMENT_SHIFT;
+        final FloatBuffer segment = renderCache.getSegment(cacheKey, segmentIndex);
+        if (segment != null) {
+            canonicalFrame = frame;
+            cachedSegment = segment;
+            crossfadeFrameCount = (int) (Transport.FADE_TIME * sampleRate);
+            crossfadeFrameIndex = 0;
+            transport.sync(velocity * nextFrame / sampleRate);
+        }
+        renderCache.prefetch(cacheKey, segmentIndex);
+        renderCache.prefetch(cacheKey, segmentIndex + 1);
+    }
+
+    /**
+     * Called once per block. Playback stops being canonical if the playhead no longer follows the output frames,
+     * e.g. after pausing or changing the velocity or the selected records. Changed settings start a new cache key.
+     */
+    private void checkCanonical() {
+        final long newCacheKey = computeCacheKey();
+        if (newCacheKey != cacheKey) {
+            cacheKey = newCacheKey;
+            if (canonicalFrame >= 0 && timeCounter == canonicalFrame) {
+                final long frame = canonicalFrame;
+                leaveCanonical();
+                canonicalFrame = frame;
+                renderCache.prefetch(cacheKey, frame >> RenderCache.SEGMENT_SHIFT);
+            } else {
+                leaveCanonical();
+            }
+        }
+        if (canonicalFrame < 0) {
+            return;
+        }
+        final double velocity = algorithm.getAlgorithmInputs().getVelocity();
+        final int selectedRecordCount = transport.getSelectedRecordCount();
+        if (transport.isPaused() || selectedRecordCount <= 0) {
+            leaveCanonical();
+            return;
+        }
+        final double expectedRecordPosition = (velocity * canonicalFrame / sampleRate) % selectedRecordCount;
+        double difference = Math.abs(transport.getRecordPosition() - expectedRecordPosition);
+        difference = Math.min(difference, selectedRecordCount - difference);
+        if (difference > 1e-6) {
+            leaveCanonical();
+            return;
+        }
+        if (cachedSegment == null && timeCounter == canonicalFrame) {
+            // Switch to cached audio as soon as the current segment has been loaded
+            final FloatBuffer segment = renderCache.getSegment(cacheKey, canonicalFrame >> RenderCache.SEGMENT_SHIFT);
+            if (segment != null) {
+                if (captureBuffer != null) {
+                    renderCache.releaseBuffer(captureBuffer);
+                    captureBuffer = null;
+                }
+                cachedSegment = segment;
+                cachedRecordIndex = -1;
+            }
+        }
+    }
+
+    private void leaveCanonical() {
+        canonicalFrame = -1;
+        cachedSegment = null;
+        crossfadeFrameCount = 0;
+        crossfadeFrameIndex = 0;
+        if (captureBuffer != null) {
+            renderCache.releaseBuffer(captureBuffer);
+            captureBuffer = null;
+        }
+    }
+
+    private long computeCacheKey() {
+        cacheKeyStore.reset();
+        cacheKeyStore.put("sampleRate", sampleRate);
+        cacheKeyStore.put("sourceFileLength", sourceFileLength);
+        cacheKeyStore.put("sourceFileLastModified", sourceFileLastModified);
+        algorithm.getAlgorithmInputs().toStore(cacheKeyStore);
+        return cacheKeyStore.getHash();
+    }
 }
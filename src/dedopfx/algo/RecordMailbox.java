@@ -0,0 +1,188 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.algo;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free, bounded mailbox for record changes. The {@link Algorithm} posts into it from the audio
+ * thread (and occasionally from the UI thread when inputs change), a single consumer drains it, usually
+ * once per UI frame.
+ * <p>
+ * Every slot owns a preallocated copy of the record's input samples, guarded by a sequence number that is odd
+ * while a producer writes the slot (a seqlock). The consumer copies a record out of its slot and only passes it
+ * on if the sequence number did not change meanwhile, so it always sees a complete, consistent record while the
+ * algorithm keeps mutating its own array.
+ * <p>
+ * Posting never blocks and only allocates when the number of samples per record changes, i.e. once after
+ * a new source file has been loaded. If the consumer falls behind by more than the capacity, the oldest
+ * records are overwritten, so the consumer skips ahead to the newest ones. Lost records are counted.
+ * <p>
+ * Each record is stamped with the frame position given by a frame position source at the time it was posted,
+ * so that a consumer can hold back records that have been rendered but are not audible yet. Such records stay
+ * in the mailbox for the playback latency, {@link #getCapacity(double, double)} sizes the mailbox for it.
+ */
+public class RecordMailbox implements Algorithm.RecordObserver {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final int capacity;
+    private final int mask;
+    private final LongSupplier framePositionSource;
+    // 2 * position + 1 while the record at position is written, 2 * position + 2 once it is published
+    private final AtomicLongArray sequences;
+    private final int[] recordIndices;
+    private final int[] recordCounts;
+    private final long[] framePositions;
+    private final double[][] inputSamples;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private long head;
+    private double[] consumerSamples;
+
+    public RecordMailbox() {
+        this(DEFAULT_CAPACITY, () -> 0L);
+    }
+
+    public RecordMailbox(LongSupplier framePositionSource) {
+        this(DEFAULT_CAPACITY, framePositionSource);
+    }
+
+    public RecordMailbox(int capacity, LongSupplier framePositionSource) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.framePositionSource = framePositionSource;
+        this.sequences = new AtomicLongArray(capacity);
+        this.recordIndices = new int[capacity];
+        this.recordCounts = new int[capacity];
+        this.framePositions = new long[capacity];
+        this.inputSamples = new double[capacity][];
+    }
+
+    /**
+     * @param queuedTime The longest time in seconds a record is held back before it becomes audible.
+     * @param recordRate The highest number of records posted per second.
+     * @return A capacity that holds all records posted during the queued time twice, which leaves room for
+     * a consumer that is late by a few frames.
+     */
+    public static int getCapacity(double queuedTime, double recordRate) {
+        final int recordCount = (int) Math.ceil(2. * queuedTime * recordRate);
+        return Math.max(Integer.highestOneBit(Math.max(recordCount - 1, 1)) << 1, 2);
+    }
+
+    @Override
+    public void onRecord(int recordIndex, int recordCount, double[] inputSamples) {
+        final long position = tail.getAndIncrement();
+        final int slot = (int) position & mask;
+        final long sequence = sequences.get(slot);
+        if ((sequence & 1) != 0 || sequence > 2 * position
+                || !sequences.compareAndSet(slot, sequence, 2 * position + 1)) {
+            // Another producer is still writing this slot or has already overwritten it with a newer record
+            droppedCount.incrementAndGet();
+            return;
+        }
+        this.recordIndices[slot] = recordIndex;
+        this.recordCounts[slot] = recordCount;
+        this.framePositions[slot] = framePositionSource.getAsLong();
+        double[] slotSamples = this.inputSamples[slot];
+        if (slotSamples == null || slotSamples.length != inputSamples.length) {
+            slotSamples = new double[inputSamples.length];
+            this.inputSamples[slot] = slotSamples;
+        }
+        System.arraycopy(inputSamples, 0, slotSamples, 0, inputSamples.length);
+        sequences.set(slot, 2 * position + 2);
+    }
+
+    /**
+     * Passes all records posted since the last call to the given observer, oldest first.
+     * Must only be called from a single consumer thread. The samples array passed to the observer
+     * is only valid during the call and must be copied if it is needed later.
+     *
+     * @return The number of records passed.
+     */
+    public int drainTo(Algorithm.RecordObserver observer) {
+        return drainTo(observer, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #drainTo(Algorithm.RecordObserver)}, but stops at the first record stamped with a frame
+     * position greater than the given one. That record and all later ones are kept for the next call.
+     *
+     * @return The number of records passed.
+     */
+    public int drainTo(Algorithm.RecordObserver observer, long maxFramePosition) {
+        int count = 0;
+        while (true) {
+            final long lostCount = tail.get() - capacity - head;
+            if (lostCount > 0) {
+                // Overwritten, or given up by a producer that found its slot busy
+                droppedCount.addAndGet(lostCount);
+                head += lostCount;
+            }
+            final int slot = (int) head & mask;
+            final long sequence = sequences.get(slot);
+            if (sequence != 2 * head + 2) {
+                if (sequence > 2 * head + 2) {
+                    // Overwritten by a newer record
+                    droppedCount.incrementAndGet();
+                    head++;
+                    continue;
+                }
+                return count;
+            }
+            final int recordIndex = recordIndices[slot];
+            final int recordCount = recordCounts[slot];
+            final long framePosition = framePositions[slot];
+            final double[] slotSamples = inputSamples[slot];
+            if (consumerSamples == null || consumerSamples.length != slotSamples.length) {
+                consumerSamples = new double[slotSamples.length];
+            }
+            System.arraycopy(slotSamples, 0, consumerSamples, 0, slotSamples.length);
+            // The copies must be complete before the sequence is checked again
+            VarHandle.acquireFence();
+            if (sequences.get(slot) != sequence) {
+                droppedCount.incrementAndGet();
+                head++;
+                continue;
+            }
+            if (framePosition > maxFramePosition) {
+                return count;
+            }
+            observer.onRecord(recordIndex, recordCount, consumerSamples);
+            head++;
+            count++;
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.algo;
+
+import java.util.stream.IntStream;
+
+/**
+ * A multi-resolution pyramid of the source records. Level 0 are the source records themselves, every
+ * following level halves the number of records along track by taking the maximum and the mean of two
+ * neighbouring records of the previous level.
+ * <p>
+ * Coarser levels are stored as floats to keep the memory overhead below the size of the source values.
+ */
+public class RecordPyramid {
+
+    private final double[][] sourceValues;
+    private final float[][][] maxLevels;
+    private final float[][][] meanLevels;
+    private final int binCount;
+
+    private RecordPyramid(double[][] sourceValues, float[][][] maxLevels, float[][][] meanLevels, int binCount) {
+        this.sourceValues = sourceValues;
+        this.maxLevels = maxLevels;
+        this.meanLevels = meanLevels;
+        this.binCount = binCount;
+    }
+
+    /**
+     * Creates the pyramid. A dataset without records gives an empty pyramid with a single level.
+     */
+    public static RecordPyramid create(double[][] sourceValues) {
+        final int recordCount = sourceValues.length;
+        final int binCount = recordCount > 0 ? sourceValues[0].length : 0;
+
+        int levelCount = 1;
+        while (getRecordCount(recordCount, levelCount - 1) > 1) {
+            levelCount++;
+        }
+
+        final float[][][] maxLevels = new float[levelCount][][];
+        final float[][][] meanLevels = new float[levelCount][][];
+        for (int level = 1; level < levelCount; level++) {
+            final int parentLevel = level - 1;
+            final int levelRecordCount = getRecordCount(recordCount, level);
+            final int parentRecordCount = getRecordCount(recordCount, parentLevel);
+            final float[][] maxRecords = new float[levelRecordCount][binCount];
+            final float[][] meanRecords = new float[levelRecordCount][binCount];
+            final float[][] parentMaxRecords = maxLevels[parentLevel];
+            final float[][] parentMeanRecords = meanLevels[parentLevel];
+            IntStream.range(0, levelRecordCount).parallel().forEach(recordIndex -> {
+                final int recordIndex1 = 2 * recordIndex;
+                final int recordIndex2 = recordIndex1 + 1 < parentRecordCount ? recordIndex1 + 1 : recordIndex1;
+                // Weights are the number of source records covered, the last record of a level may cover fewer
+                final double weight1 = getCoveredRecordCount(recordCount, parentLevel, recordIndex1);
+                final double weight2 = recordIndex2 != recordIndex1 ? getCoveredRecordCount(recordCount, parentLevel, recordIndex2) : 0;
+                final float[] maxRecord = maxRecords[recordIndex];
+                final float[] meanRecord = meanRecords[recordIndex];
+                for (int binIndex = 0; binIndex < binCount; binIndex++) {
+                    final double max1, max2, mean1, mean2;
+                    if (parentLevel == 0) {
+                        max1 = mean1 = sourceValues[recordIndex1][binIndex];
+                        max2 = mean2 = sourceValues[recordIndex2][binIndex];
+                    } else {
+                        max1 = parentMaxRecords[recordIndex1][binIndex];
+                        max2 = parentMaxRecords[recordIndex2][binIndex];
+                        mean1 = parentMeanRecords[recordIndex1][binIndex];
+                        mean2 = parentMeanRecords[recordIndex2][binIndex];
+                    }
+                    maxRecord[binIndex] = (float) Math.max(max1, max2);
+                    meanRecord[binIndex] = (float) ((weight1 * mean1 + weight2 * mean2) / (weight1 + weight2));
+                }
+            });
+            maxLevels[level] = maxRecords;
+            meanLevels[level] = meanRecords;
+        }
+
+        return new RecordPyramid(sourceValues, maxLevels, meanLevels, binCount);
+    }
+
+    public int getLevelCount() {
+        return maxLevels.length;
+    }
+
+    public int getBinCount() {
+        return binCount;
+    }
+
+    public int getRecordCount(int level) {
+        return getRecordCount(sourceValues.length, level);
+    }
+
+    /**
+     * @param recordsPerPixel The number of source records that fall into a single pixel of the target view.
+     * @return The finest level whose records still each cover at most {@code recordsPerPixel} source records.
+     */
+    public int getLevel(double recordsPerPixel) {
+        int level = 0;
+        while (level < getLevelCount() - 1 && (2 << level) <= recordsPerPixel) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * @return The index of the record at the given level that contains the given source record.
+     */
+    public int getRecordIndex(int level, int sourceRecordIndex) {
+        return sourceRecordIndex >> level;
+    }
+
+    public double getMaxValue(int level, int recordIndex, int binIndex) {
+        if (level == 0) {
+            return sourceValues[recordIndex][binIndex];
+        }
+        return maxLevels[level][recordIndex][binIndex];
+    }
+
+    public double getMeanValue(int level, int recordIndex, int binIndex) {
+        if (level == 0) {
+            return sourceValues[recordIndex][binIndex];
+        }
+        return meanLevels[level][recordIndex][binIndex];
+    }
+
+    private static int getRecordCount(int recordCount, int level) {
+        return ((recordCount - 1) >> level) + 1;
+    }
+
+    private static int getCoveredRecordCount(int recordCount, int level, int recordIndex) {
+        final int first = recordIndex << level;
+        return Math.min(1 << level, recordCount - first);
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.algo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A disk-backed cache of rendered audio.
+ * <p>
+ * Audio is cached in segments of {@link #SEGMENT_SIZE} frames of big-endian 32 bit floats, one file per segment,
+ * named after a key (a hash of the source file and all settings affecting the audio) and the segment index.
+ * The cached signal is taken before the gain, clipping and sample format conversion, so changing those
+ * settings only re-runs the final stage and keeps the cache valid.
+ * Segments are read through memory-mapped files. Least recently used segments are deleted when the files
+ * exceed the disk quota.
+ * <p>
+ * The methods used by the renderer never block: {@link #getSegment(long, long)} only returns segments that
+ * have already been mapped and loaded by {@link #prefetch(long, long)}, and segments are written
+ * by a background thread directly from the direct buffers of a small pool, which the renderer fills. Requests are passed to that thread through a
+ * preallocated ring, so the renderer side also never allocates. It must only be used by a single renderer thread.
+ */
+public class RenderCache {
+
+    public static final int SEGMENT_SHIFT = 18;
+    public static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    public static final long DEFAULT_QUOTA = 256L * 1024L * 1024L;
+
+    private static final String FILE_EXTENSION = ".f32";
+    private static final int BUFFER_COUNT = 2;
+    private static final int MAX_LOADED_SEGMENT_COUNT = 4;
+    private static final int REQUEST_RING_SIZE = 16;
+
+    private static final class LoadedSegment {
+        final long key;
+        final long segmentIndex;
+        final String name;
+        final FloatBuffer samples;
+
+        LoadedSegment(long key, long segmentIndex, String name, FloatBuffer samples) {
+            this.key = key;
+            this.segmentIndex = segmentIndex;
+            this.name = name;
+            this.samples = samples;
+        }
+    }
+
+    private final File directory;
+    private final long quota;
+    private final Thread thread;
+    private final ByteBuffer[] bufferBytes = new ByteBuffer[BUFFER_COUNT];
+    private final FloatBuffer[] bufferSamples = new FloatBuffer[BUFFER_COUNT];
+    private final AtomicReferenceArray<FloatBuffer> freeBuffers = new AtomicReferenceArray<>(BUFFER_COUNT);
+    private final AtomicReferenceArray<LoadedSegment> loadedSegments =
+            new AtomicReferenceArray<>(MAX_LOADED_SEGMENT_COUNT);
+
+    // Written by the renderer, a request with a buffer is a write, otherwise a load
+    private final long[] requestKeys = new long[REQUEST_RING_SIZE];
+    private final long[] requestSegmentIndices = new long[REQUEST_RING_SIZE];
+    private final FloatBuffer[] requestBuffers = new FloatBuffer[REQUEST_RING_SIZE];
+    private final AtomicLong requestWritePosition = new AtomicLong();
+    private final AtomicLong requestReadPosition = new AtomicLong();
+
+    // Only accessed by the cache thread
+    private final LinkedHashMap<String, Long> fileSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private int nextLoadedSlot;
+    private long totalSize;
+
+    public RenderCache(File directory, long quota) {
+        this.directory = directory;
+        this.quota = quota;
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            bufferBytes[i] = ByteBuffer.allocateDirect(4 * SEGMENT_SIZE);
+            bufferSamples[i] = bufferBytes[i].asFloatBuffer();
+            freeBuffers.set(i, bufferSamples[i]);
+        }
+        this.thread = new Thread(this::run, "RenderCache");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates the cache in the directory given by the system property {@code dedopfx.renderCache.dir}
+     * (default {@code ~/.dedop-fx/render-cache}) with the quota in megabytes given by
+     * {@code dedopfx.renderCache.quota}. Returns {@code null} if the quota is zero.
+     */
+    public static RenderCache createDefault() {
+        final File directory = new File(System.getProperty("dedopfx.renderCache.dir",
+                new File(new File(System.getProperty("user.home"), ".dedop-fx"), "render-cache").getPath()));
+        long quota = DEFAULT_QUOTA;
+        final String quotaValue = System.getProperty("dedopfx.renderCache.quota");
+        if (quotaValue != null) {
+            try {
+                quota = Long.parseLong(quotaValue.trim()) * 1024L * 1024L;
+            } catch (NumberFormatException e) {
+                System.out.printf("WARNING: Invalid render cache quota '%s', using the default%n", quotaValue);
+            }
+        }
+        return quota > 0 ? new RenderCache(directory, quota) : null;
+    }
+
+    /**
+     * @return The segment's samples if it has been loaded, otherwise {@code null}. Never blocks.
+     * The buffer is shared, it must only be read with absolute gets.
+     */
+    public FloatBuffer getSegment(long key, long segmentIndex) {
+        for (int i = 0; i < MAX_LOADED_SEGMENT_COUNT; i++) {
+            final LoadedSegment segment = loadedSegments.get(i);
+            if (segment != null && segment.key == key && segment.segmentIndex == segmentIndex) {
+                return segment.samples;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Asks the cache to map and load the segment in the background, if it exists. Never blocks.
+     * The request is dropped if the cache thread is too far behind.
+     */
+    public void prefetch(long key, long segmentIndex) {
+        if (getSegment(key, segmentIndex) == null) {
+            postRequest(key, segmentIndex, null);
+        }
+    }
+
+    /**
+     * @return A buffer for {@link #SEGMENT_SIZE} samples to be passed to {@link #putSegment(long, long, FloatBuffer)}
+     * or {@link #releaseBuffer(FloatBuffer)}, or {@code null} if all buffers are in use. Never blocks.
+     * The buffer must only be written with absolute puts.
+     */
+    public FloatBuffer acquireBuffer() {
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            final FloatBuffer buffer = freeBuffers.get(i);
+            if (buffer != null && freeBuffers.compareAndSet(i, buffer, null)) {
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+    public void releaseBuffer(FloatBuffer buffer) {
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            if (freeBuffers.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the samples of a complete segment in the background and releases the buffer afterwards.
+     * The segment is dropped if the cache thread is too far behind.
+     */
+    public void putSegment(long key, long segmentIndex, FloatBuffer buffer) {
+        if (!postRequest(key, segmentIndex, buffer)) {
+            releaseBuffer(buffer);
+        }
+    }
+
+    private boolean postRequest(long key, long segmentIndex, FloatBuffer buffer) {
+        final long position = requestWritePosition.get();
+        if (position - requestReadPosition.get() >= REQUEST_RING_SIZE) {
+            return false;
+        }
+        final int slot = (int) position & (REQUEST_RING_SIZE - 1);
+        requestKeys[slot] = key;
+        requestSegmentIndices[slot] = segmentIndex;
+        requestBuffers[slot] = buffer;
+        requestWritePosition.lazySet(position + 1);
+        LockSupport.unpark(thread);
+        return true;
+    }
+
+    private void run() {
+        scanDirectory();
+        while (true) {
+            final long position = requestReadPosition.get();
+            if (position == requestWritePosition.get()) {
+                LockSupport.park(this);
+                continue;
+            }
+            final int slot = (int) position & (REQUEST_RING_SIZE - 1);
+            final long key = requestKeys[slot];
+            final long segmentIndex = requestSegmentIndices[slot];
+            final FloatBuffer buffer = requestBuffers[slot];
+            requestBuffers[slot] = null;
+            requestReadPosition.lazySet(position + 1);
+            if (buffer != null) {
+                try {
+                    writeSegment(getSegmentName(key, segmentIndex), buffer);
+                } finally {
+                    releaseBuffer(buffer);
+                }
+            } else if (getSegment(key, segmentIndex) == null) {
+                loadSegment(key, segmentIndex);
+            }
+        }
+    }
+
+    private void scanDirectory() {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            fileSizes.put(file.getName(), file.length());
+            totalSize += file.length();
+        }
+        evict();
+    }
+
+    private void loadSegment(long key, long segmentIndex) {
+        final String name = getSegmentName(key, segmentIndex);
+        if (!fileSizes.containsKey(name)) {
+            return;
+        }
+        final File file = new File(directory, name);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            if (randomAccessFile.length() != 4L * SEGMENT_SIZE) {
+                return;
+            }
+            final MappedByteBuffer buffer = randomAccessFile.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            buffer.load();
+            // Replaces the oldest loaded segment
+            loadedSegments.set(nextLoadedSlot, new LoadedSegment(key, segmentIndex, name, buffer.asFloatBuffer()));
+            nextLoadedSlot = (nextLoadedSlot + 1) % MAX_LOADED_SEGMENT_COUNT;
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+            // Marks the segment as recently used
+            fileSizes.get(name);
+        } catch (IOException e) {
+            System.out.printf("WARNING: Failed to read render cache segment %s: %s%n", file, e.getMessage());
+        }
+    }
+
+    private void writeSegment(String name, FloatBuffer samples) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.out.printf("WARNING: Failed to create render cache directory %s%n", directory);
+            return;
+        }
+        final File file = new File(directory, name);
+        final File tempFile = new File(directory, name + ".tmp");
+        final ByteBuffer buffer = getBufferBytes(samples);
+        buffer.clear();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(tempFile, "rw")) {
+            randomAccessFile.setLength(0);
+            final FileChannel channel = randomAccessFile.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            System.out.printf("WARNING: Failed to write render cache segment %s: %s%n", file, e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return;
+        }
+        // A segment only becomes visible when it is complete
+        if (!tempFile.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return;
+        }
+        final Long oldSize = fileSizes.put(name, file.length());
+        totalSize += file.length() - (oldSize != null ? oldSize : 0L);
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, Long>> iterator = fileSizes.entrySet().iterator();
+        while (totalSize > quota && fileSizes.size() > 1 && iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            if (new File(directory, entry.getKey()).delete()) {
+                totalSize -= entry.getValue();
+                unloadSegment(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    private ByteBuffer getBufferBytes(FloatBuffer samples) {
+        int i = 0;
+        while (bufferSamples[i] != samples) {
+            i++;
+        }
+        return bufferBytes[i];
+    }
+
+    private void unloadSegment(String name) {
+        for (int i = 0; i < MAX_LOADED_SEGMENT_COUNT; i++) {
+            final LoadedSegment segment = loadedSegments.get(i);
+            if (segment != null && segment.name.equals(name)) {
+                loadedSegments.compareAndSet(i, segment, null);
+            }
+        }
+    }
+
+    private static String getSegmentName(long key, long segmentIndex) {
+        return String.format("%016x-%06d%s", key, segmentIndex, FILE_EXTENSION);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.algo;
+
+import java.util.List;
+
+/**
+ * Renders with the engine selected by {@link AlgorithmInputs#getEngine()} and crossfades to another engine
+ * when the selection changes, so engines can be swapped while playing.
+ * <p>
+ * One engine of every provider is created up front, so swapping neither allocates nor registers listeners on the
+ * audio thread. Only the selected engine passes records to the record observer. Unknown identifiers select the
+ * first provider.
+ */
+public class SwitchingEngine implements SynthesisEngine {
+
+    public static final double CROSSFADE_TIME = 0.05;
+
+    private final AlgorithmInputs algorithmInputs;
+    private final String[] engineIds;
+    private final SynthesisEngine[] engines;
+    private double sampleRate = Algorithm.DEFAULT_SAMPLE_RATE;
+    private String engineId;
+    // Volatile, so that monitors can read the current record index from other threads
+    private volatile SynthesisEngine engine;
+    private SynthesisEngine fadeEngine;
+    private int fadeFrameCount;
+    private int fadeFrameIndex;
+
+    public SwitchingEngine(AlgorithmInputs algorithmInputs, Algorithm.RecordObserver recordObserver) {
+        this(algorithmInputs, recordObserver, SynthesisEngines.getProviders());
+    }
+
+    public SwitchingEngine(AlgorithmInputs algorithmInputs, Algorithm.RecordObserver recordObserver,
+                           List<SynthesisEngineProvider> providers) {
+        this.algorithmInputs = algorithmInputs;
+        this.engineIds = new String[providers.size()];
+        this.engines = new SynthesisEngine[providers.size()];
+        for (int i = 0; i < engines.length; i++) {
+            final int engineIndex = i;
+            Algorithm.RecordObserver engineRecordObserver = null;
+            if (recordObserver != null) {
+                engineRecordObserver = (recordIndex, recordCount, inputSamples) -> {
+                    if (engines[engineIndex] == engine) {
+                        recordObserver.onRecord(recordIndex, recordCount, inputSamples);
+                    }
+                };
+            }
+            engineIds[i] = providers.get(i).getId();
+            engines[i] = providers.get(i).createEngine(algorithmInputs, engineRecordObserver);
+        }
+        engineId = algorithmInputs.getEngine();
+        engine = engines[indexOf(engineId)];
+        setSampleRate(sampleRate);
+    }
+
+    @Override
+    public AlgorithmInputs getAlgorithmInputs() {
+        return algorithmInputs;
+    }
+
+    /**
+     * @return The selected engine, during a crossfade the one faded in.
+     */
+    public SynthesisEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    public int getCurrentRecordIndex() {
+        return engine.getCurrentRecordIndex();
+    }
+
+    @Override
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+        fadeFrameCount = (int) (CROSSFADE_TIME * sampleRate);
+        for (SynthesisEngine engine : engines) {
+            engine.setSampleRate(sampleRate);
+        }
+    }
+
+    @Override
+    public void setTime(double time) {
+        selectEngine();
+        engine.setTime(time);
+        if (fadeEngine != null) {
+            fadeEngine.setTime(time);
+        }
+    }
+
+    @Override
+    public void setTime(double time, Transport transport) {
+        selectEngine();
+        engine.setTime(time, transport);
+        if (fadeEngine != null) {
+            fadeEngine.setTime(time, transport);
+        }
+    }
+
+    @Override
+    public double computePreGainOutput() {
+        final double output = engine.computePreGainOutput();
+        if (fadeEngine == null) {
+            return output;
+        }
+        final double fadeOutput = fadeEngine.computePreGainOutput();
+        final double weight = (fadeFrameIndex + 1.) / (fadeFrameCount + 1.);
+        fadeFrameIndex++;
+        if (fadeFrameIndex >= fadeFrameCount) {
+            fadeEngine = null;
+        }
+        return fadeOutput + weight * (output - fadeOutput);
+    }
+
+    private void selectEngine() {
+        final String newEngineId = algorithmInputs.getEngine();
+        // Compared by identity first, the identifier only changes when the setting is changed
+        if (newEngineId == engineId) {
+            return;
+        }
+        engineId = newEngineId;
+        final SynthesisEngine newEngine = engines[indexOf(newEngineId)];
+        if (newEngine == engine) {
+            return;
+        }
+        if (newEngine == fadeEngine) {
+            // Reversing a crossfade continues from the current mix
+            fadeFrameIndex = Math.min(fadeFrameCount - fadeFrameIndex + 1, fadeFrameCount);
+        } else {
+            fadeFrameIndex = 0;
+        }
+        fadeEngine = fadeFrameCount > 0 ? engine : null;
+        engine = newEngine;
+    }
+
+    private int indexOf(String engineId) {
+        for (int i = 0; i < engineIds.length; i++) {
+            if (engineIds[i].equals(engineId)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
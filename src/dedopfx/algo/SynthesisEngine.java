@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.algo;
+
+/**
+ * A sonification algorithm that turns the {@link AlgorithmInputs} into audio.
+ * <p>
+ * Engines are created by a {@link SynthesisEngineProvider}, which also describes their parameters and cost.
+ * The output must be fully determined by the inputs and the time, so that it can be kept in the {@link RenderCache}.
+ * All methods except {@link #getCurrentRecordIndex()} are called from the audio thread only, and rendering must
+ * neither block nor allocate.
+ */
+public interface SynthesisEngine {
+
+    AlgorithmInputs getAlgorithmInputs();
+
+    /**
+     * @return The index of the record currently rendered, or -1. May be called from any thread.
+     */
+    int getCurrentRecordIndex();
+
+    double getSampleRate();
+
+    void setSampleRate(double sampleRate);
+
+    /**
+     * Sets the time and derives the record position from it and the velocity.
+     */
+    void setTime(double time);
+
+    /**
+     * Sets the time used by the oscillators and takes the record position from the given transport.
+     */
+    void setTime(double time, Transport transport);
+
+    /**
+     * @return The synthesized output at the current time before the gain is applied.
+     */
+    double computePreGainOutput();
+
+    /**
+     * Renders consecutive pre-gain samples, the first one at the given time, the record position following
+     * the velocity. The default implementation renders sample by sample, engines may override it with a
+     * faster block implementation.
+     */
+    default void render(double startTime, double[] output, int offset, int length) {
+        final double sampleRate = getSampleRate();
+        for (int i = 0; i < length; i++) {
+            setTime(startTime + i / sampleRate);
+            output[offset + i] = computePreGainOutput();
+        }
+    }
+}
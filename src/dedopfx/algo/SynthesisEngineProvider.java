@@ -0,0 +1,57 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.algo;
+
+/**
+ * Describes and creates a {@link SynthesisEngine}.
+ * <p>
+ * Providers are discovered with {@link java.util.ServiceLoader}, so new engines are added by putting a jar
+ * with a {@code META-INF/services/dedopfx.algo.SynthesisEngineProvider} entry on the class path.
+ * Implementations must have a public no-argument constructor.
+ */
+public interface SynthesisEngineProvider {
+
+    /**
+     * @return The unique, stable identifier stored in the settings.
+     */
+    String getId();
+
+    String getDisplayName();
+
+    /**
+     * @return The keys of the {@link AlgorithmInputs} settings read by the engine, as written by
+     * {@link AlgorithmInputs#toStore(dedopfx.store.Store)}. The UI may disable the controls of other settings.
+     */
+    String[] getParameterKeys();
+
+    /**
+     * @return The approximate cost of rendering one sample of one frequency bin, relative to the additive engine
+     * with sine carriers, no partials and no modulation.
+     */
+    double getCostPerBin();
+
+    SynthesisEngine createEngine(AlgorithmInputs algorithmInputs, Algorithm.RecordObserver recordObserver);
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.algo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * The registry of the available {@link SynthesisEngineProvider}s.
+ * <p>
+ * Providers are discovered once with {@link ServiceLoader}. The additive engine is always available and listed
+ * first, providers that fail to load or reuse an identifier are reported and skipped.
+ */
+public final class SynthesisEngines {
+
+    public static final String DEFAULT_ENGINE_ID = AdditiveEngineProvider.ID;
+
+    private static List<SynthesisEngineProvider> providers;
+
+    private SynthesisEngines() {
+    }
+
+    public static synchronized List<SynthesisEngineProvider> getProviders() {
+        if (providers == null) {
+            providers = Collections.unmodifiableList(loadProviders());
+        }
+        return providers;
+    }
+
+    /**
+     * @return The provider with the given identifier, or the default provider if there is none.
+     */
+    public static SynthesisEngineProvider getProvider(String id) {
+        final List<SynthesisEngineProvider> providers = getProviders();
+        final int index = indexOf(providers, id);
+        return providers.get(index >= 0 ? index : 0);
+    }
+
+    private static List<SynthesisEngineProvider> loadProviders() {
+        final List<SynthesisEngineProvider> providers = new ArrayList<>();
+        providers.add(new AdditiveEngineProvider());
+        final Iterator<SynthesisEngineProvider> iterator = ServiceLoader.load(SynthesisEngineProvider.class).iterator();
+        while (true) {
+            final SynthesisEngineProvider provider;
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                provider = iterator.next();
+            } catch (ServiceConfigurationError e) {
+                System.out.printf("WARNING: Failed to load synthesis engine: %s%n", e.getMessage());
+                continue;
+            }
+            if (indexOf(providers, provider.getId()) >= 0) {
+                if (!(provider instanceof AdditiveEngineProvider)) {
+                    System.out.printf("WARNING: Ignoring synthesis engine %s, the identifier \"%s\" is already used%n",
+                            provider.getClass().getName(), provider.getId());
+                }
+                continue;
+            }
+            providers.add(provider);
+        }
+        return providers;
+    }
+
+    static int indexOf(List<SynthesisEngineProvider> providers, String id) {
+        for (int i = 0; i < providers.size(); i++) {
+            if (providers.get(i).getId().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
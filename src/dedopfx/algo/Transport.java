@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.algo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves the playhead through the selected records. The UI requests seeks, pausing and looping,
+ * the renderer calls {@link #advance(double)} once per sample and applies the result.
+ * <p>
+ * Jumps of the playhead are click-free: after a seek or a loop wrap, the record values are crossfaded from
+ * the old position to the new one over {@link #FADE_TIME} seconds, while the oscillators keep running.
+ * Pausing and resuming fade the output out and in over the same time.
+ * <p>
+ * Record positions are relative to the minimum record index, in records.
+ */
+public class Transport {
+
+    public static final double FADE_TIME = 0.01;
+
+    private final AlgorithmInputs algorithmInputs;
+    private final AtomicInteger seekRecordIndex = new AtomicInteger(-1);
+    private volatile boolean paused;
+    private volatile boolean looping = true;
+
+    // Renderer state, only accessed by the audio thread
+    private double recordPosition;
+    private double fadeRecordPosition;
+    private double fadeWeight = 1.;
+    private double outputWeight;
+    private boolean endReached;
+    private long seekCount;
+
+    public Transport(AlgorithmInputs algorithmInputs) {
+        this.algorithmInputs = algorithmInputs;
+    }
+
+    /**
+     * Requests the playhead to move to the given record. Records outside the selected range are clamped.
+     */
+    public void seek(int recordIndex) {
+        seekRecordIndex.set(Math.max(0, recordIndex));
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public boolean isLooping() {
+        return looping;
+    }
+
+    /**
+     * @param looping If true, the playhead wraps around at the end of the selected records,
+     *                otherwise playback pauses there and resuming starts from the beginning.
+     */
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    /**
+     * Moves the playhead to the first selected record and fades in. Called by the audio thread before
+     * the first sample of a playback session is rendered. A pending seek is kept.
+     */
+    public void rewind() {
+        recordPosition = 0.;
+        fadeRecordPosition = 0.;
+        fadeWeight = 1.;
+        outputWeight = 0.;
+        endReached = false;
+    }
+
+    /**
+     * Advances the playhead by one sample. Called by the audio thread.
+     */
+    public void advance(double sampleRate) {
+        final int selectedRecordCount = getSelectedRecordCount();
+        if (selectedRecordCount <= 0) {
+            return;
+        }
+        final double fadeStep = 1. / (FADE_TIME * sampleRate);
+
+        // Plain read first, so that the common case does not need a locked instruction
+        if (seekRecordIndex.get() >= 0) {
+            final int recordIndex = seekRecordIndex.getAndSet(-1);
+            jumpTo(Math.max(0, Math.min(recordIndex - getFirstSelectedRecordIndex(), selectedRecordCount - 1)));
+            seekCount++;
+        }
+
+        if (paused) {
+            outputWeight = Math.max(0., outputWeight - fadeStep);
+        } else {
+            if (endReached) {
+                endReached = false;
+                jumpTo(0.);
+            }
+            outputWeight = Math.min(1., outputWeight + fadeStep);
+        }
+
+        // Keep moving while fading out, so that pausing sounds like stopping, not like a held record
+        if (outputWeight > 0.) {
+            final double step = algorithmInputs.getVelocity() / sampleRate;
+            recordPosition += step;
+            if (fadeWeight < 1.) {
+                fadeRecordPosition = Math.min(fadeRecordPosition + step, selectedRecordCount - 1);
+                fadeWeight = Math.min(1., fadeWeight + fadeStep);
+            }
+            if (recordPosition >= selectedRecordCount) {
+                if (looping) {
+                    fadeRecordPosition = selectedRecordCount - 1;
+                    fadeWeight = 0.;
+                    recordPosition %= selectedRecordCount;
+                } else {
+                    recordPosition = selectedRecordCount - 1;
+                    endReached = true;
+                    paused = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the playhead without fading, to compensate rounding. Called by the audio thread.
+     */
+    public void sync(double recordPosition) {
+        final int selectedRecordCount = getSelectedRecordCount();
+        this.recordPosition = selectedRecordCount > 0 ? recordPosition % selectedRecordCount : recordPosition;
+    }
+
+    /**
+     * @return The number of seeks performed by the audio thread so far.
+     */
+    public long getSeekCount() {
+        return seekCount;
+    }
+
+    public double getRecordPosition() {
+        return recordPosition;
+    }
+
+    public double getFadeRecordPosition() {
+        return fadeRecordPosition;
+    }
+
+    /**
+     * @return The weight of the record values at the record position, the remainder is taken from
+     * the fade record position.
+     */
+    public double getFadeWeight() {
+        return fadeWeight;
+    }
+
+    /**
+     * @return The factor to be applied to the output, {@code 0} while paused.
+     */
+    public double getOutputWeight() {
+        return outputWeight;
+    }
+
+    private void jumpTo(double newRecordPosition) {
+        // A jump during a fade continues from the position that dominates the mix
+        fadeRecordPosition = fadeWeight >= 0.5 ? recordPosition : fadeRecordPosition;
+        fadeWeight = 0.;
+        recordPosition = newRecordPosition;
+    }
+
+    public int getSelectedRecordCount() {
+        final double[][] sourceValues = algorithmInputs.getSourceValues();
+        if (sourceValues == null) {
+            return 0;
+        }
+        final int recordCount = sourceValues.length;
+        return 1 + Math.abs(clampRecordIndex(algorithmInputs.getMaxRecordIndex(), recordCount)
+                - clampRecordIndex(algorithmInputs.getMinRecordIndex(), recordCount));
+    }
+
+    private int getFirstSelectedRecordIndex() {
+        final double[][] sourceValues = algorithmInputs.getSourceValues();
+        if (sourceValues == null) {
+            return 0;
+        }
+        final int recordCount = sourceValues.length;
+        return Math.min(clampRecordIndex(algorithmInputs.getMinRecordIndex(), recordCount),
+                clampRecordIndex(algorithmInputs.getMaxRecordIndex(), recordCount));
+    }
+
+    private static int clampRecordIndex(int recordIndex, int recordCount) {
+        return Math.max(0, Math.min(recordIndex, recordCount - 1));
+    }
+}
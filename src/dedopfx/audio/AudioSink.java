@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Where rendered audio goes. The methods have the semantics of the corresponding {@link javax.sound.sampled.SourceDataLine}
+ * methods, sizes and positions are in bytes unless stated otherwise.
+ */
+public interface AudioSink {
+
+    /**
+     * Opens the sink with its default buffer size.
+     */
+    void open(AudioFormat audioFormat) throws LineUnavailableException;
+
+    void open(AudioFormat audioFormat, int bufferSize) throws LineUnavailableException;
+
+    void start();
+
+    int getBufferSize();
+
+    /**
+     * @return The number of bytes that can be written without blocking.
+     */
+    int available();
+
+    /**
+     * Writes the given bytes, blocks until all of them have been queued.
+     */
+    int write(byte[] b, int off, int len);
+
+    /**
+     * @return The number of frames played since the sink has been opened. May be called from any thread.
+     */
+    long getLongFramePosition();
+
+    void drain();
+
+    void close();
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.audio;
+
+/**
+ * An in-place, iterative radix-2 complex FFT. Twiddle factors and the bit reversal permutation are
+ * computed once, so {@link #transform(double[], double[])} does not allocate.
+ */
+public class FFT {
+
+    private final int size;
+    private final double[] cosTable;
+    private final double[] sinTable;
+    private final int[] reversedIndices;
+
+    public FFT(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("size must be a power of two");
+        }
+        this.size = size;
+        this.cosTable = new double[size / 2];
+        this.sinTable = new double[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cosTable[i] = Math.cos(2. * Math.PI * i / size);
+            sinTable[i] = -Math.sin(2. * Math.PI * i / size);
+        }
+        final int bitCount = Integer.numberOfTrailingZeros(size);
+        this.reversedIndices = new int[size];
+        for (int i = 0; i < size; i++) {
+            reversedIndices[i] = Integer.reverse(i) >>> (32 - bitCount);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Computes the forward transform of the given complex signal in place.
+     */
+    public void transform(double[] re, double[] im) {
+        for (int i = 0; i < size; i++) {
+            final int j = reversedIndices[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int halfSize = 1; halfSize < size; halfSize *= 2) {
+            final int tableStep = size / (2 * halfSize);
+            for (int i = 0; i < size; i += 2 * halfSize) {
+                for (int j = 0, k = 0; j < halfSize; j++, k += tableStep) {
+                    final int l = i + j;
+                    final int m = l + halfSize;
+                    final double tRe = re[m] * cosTable[k] - im[m] * sinTable[k];
+                    final double tIm = re[m] * sinTable[k] + im[m] * cosTable[k];
+                    re[m] = re[l] - tRe;
+                    im[m] = im[l] - tIm;
+                    re[l] += tRe;
+                    im[l] += tIm;
+                }
+            }
+        }
+    }
+}
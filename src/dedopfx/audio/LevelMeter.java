@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Output level statistics published by the audio renderer once per rendered block and read by the UI.
+ * <p>
+ * All values are kept in atomics, so updating the meter never locks and never allocates. Peak and RMS
+ * are accumulated until the reader fetches them, so no block is missed if the reader is slower than the
+ * renderer. Clip counts are cumulative until {@link #resetClipCounts()} is called.
+ */
+public class LevelMeter {
+
+    private final AtomicLong peakBits = new AtomicLong();
+    private final AtomicLong sumOfSquaresBits = new AtomicLong();
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final AtomicLong topClipCount = new AtomicLong();
+    private final AtomicLong bottomClipCount = new AtomicLong();
+
+    /**
+     * Called by the renderer after each block.
+     *
+     * @param peak            The maximum absolute sample value of the block before clipping.
+     * @param sumOfSquares    The sum of the squared sample values of the block after clipping.
+     * @param sampleCount     The number of samples in the block.
+     * @param topClipCount    The number of samples clipped at +1.
+     * @param bottomClipCount The number of samples clipped at -1.
+     */
+    public void update(double peak, double sumOfSquares, int sampleCount, int topClipCount, int bottomClipCount) {
+        // Bit patterns of non-negative doubles order like the doubles themselves
+        final long peakBits = Double.doubleToRawLongBits(peak);
+        long oldPeakBits;
+        do {
+            oldPeakBits = this.peakBits.get();
+        } while (peakBits > oldPeakBits && !this.peakBits.compareAndSet(oldPeakBits, peakBits));
+
+        long oldSumBits;
+        do {
+            oldSumBits = sumOfSquaresBits.get();
+        } while (!sumOfSquaresBits.compareAndSet(oldSumBits,
+                Double.doubleToRawLongBits(Double.longBitsToDouble(oldSumBits) + sumOfSquares)));
+
+        this.sampleCount.addAndGet(sampleCount);
+        if (topClipCount > 0) {
+            this.topClipCount.addAndGet(topClipCount);
+        }
+        if (bottomClipCount > 0) {
+            this.bottomClipCount.addAndGet(bottomClipCount);
+        }
+    }
+
+    /**
+     * @return The peak level since the last call, {@code 1.0} is full scale, values above indicate clipping.
+     */
+    public double readPeak() {
+        return Double.longBitsToDouble(peakBits.getAndSet(0));
+    }
+
+    /**
+     * @return The RMS level since the last call, {@code 1.0} is full scale.
+     */
+    public double readRms() {
+        final long count = sampleCount.getAndSet(0);
+        final double sumOfSquares = Double.longBitsToDouble(sumOfSquaresBits.getAndSet(0));
+        return count > 0 ? Math.sqrt(sumOfSquares / count) : 0.;
+    }
+
+    public long getTopClipCount() {
+        return topClipCount.get();
+    }
+
+    public long getBottomClipCount() {
+        return bottomClipCount.get();
+    }
+
+    public void resetClipCounts() {
+        topClipCount.set(0);
+        bottomClipCount.set(0);
+    }
+}
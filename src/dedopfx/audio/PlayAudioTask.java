@@ -24,75 +24,184 @@
 
 package dedopfx.audio;
 
-import dedopfx.algo.Algorithm;
 import dedopfx.algo.AlgorithmSampleInputStream;
+import dedopfx.algo.RenderCache;
+import dedopfx.algo.SynthesisEngine;
+import dedopfx.algo.Transport;
+import dedopfx.jfr.RenderBlockEvent;
+import dedopfx.jfr.UnderrunEvent;
 import javafx.concurrent.Task;
 
 import javax.sound.sampled.*;
-import java.io.InputStream;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
 
 public class PlayAudioTask extends Task<Void> {
-    final Algorithm algorithm;
 
-    public PlayAudioTask(Algorithm algorithm) {
+    public static final int SAMPLE_RATE = 44100;
+
+    // Default mode: the block duration, and the longest time a rendered frame waits before it is played,
+    // i.e. a block plus the line buffer, which Java Sound opens with 0.5 s. Low latency mode queues less.
+    static final double BLOCK_TIME = 0.1;
+    public static final double MAX_QUEUED_TIME = BLOCK_TIME + 0.5;
+
+    // Low latency mode: block size and the range of the adaptive line fill, all in frames
+    static final int LOW_LATENCY_BLOCK_SIZE = 256;
+    static final int MIN_TARGET_FILL = 2 * LOW_LATENCY_BLOCK_SIZE;
+    static final int MAX_TARGET_FILL = 32 * LOW_LATENCY_BLOCK_SIZE;
+    // The fill shrinks by a quarter after each interval without underrun and is remembered once it held this long
+    static final long SHRINK_NANOS = 1_000_000_000L;
+    static final long STABLE_NANOS = 5_000_000_000L;
+
+    // A session starts with the last fill that held, the first one with the maximum to get through JIT warm-up
+    private static volatile int stableTargetFill = MAX_TARGET_FILL;
+
+    final SynthesisEngine algorithm;
+    final LevelMeter levelMeter;
+    final SpectrumAnalyzer spectrumAnalyzer;
+    final PlaybackTimeline playbackTimeline;
+    final Transport transport;
+    final WavRecorder wavRecorder;
+    final RenderCache renderCache;
+    final AudioSink audioSink;
+    final boolean lowLatency;
+
+    public PlayAudioTask(SynthesisEngine algorithm, LevelMeter levelMeter, SpectrumAnalyzer spectrumAnalyzer,
+                         PlaybackTimeline playbackTimeline, Transport transport, WavRecorder wavRecorder,
+                         RenderCache renderCache, boolean lowLatency) {
+        this(algorithm, levelMeter, spectrumAnalyzer, playbackTimeline, transport, wavRecorder, renderCache,
+             new SourceDataLineSink(), lowLatency);
+    }
+
+    public PlayAudioTask(SynthesisEngine algorithm, LevelMeter levelMeter, SpectrumAnalyzer spectrumAnalyzer,
+                         PlaybackTimeline playbackTimeline, Transport transport, WavRecorder wavRecorder,
+                         RenderCache renderCache, AudioSink audioSink, boolean lowLatency) {
         this.algorithm = algorithm;
+        this.levelMeter = levelMeter;
+        this.spectrumAnalyzer = spectrumAnalyzer;
+        this.playbackTimeline = playbackTimeline;
+        this.transport = transport;
+        this.wavRecorder = wavRecorder;
+        this.renderCache = renderCache;
+        this.audioSink = audioSink;
+        this.lowLatency = lowLatency;
     }
 
     @Override
     protected Void call() throws Exception {
+        play(this::isCancelled);
+        return null;
+    }
 
-        int sampleRate = 44100;
+    /**
+     * Renders and plays until cancelled. Does not depend on the JavaFX toolkit, so it can be called by tests.
+     */
+    void play(BooleanSupplier cancelled) throws IOException, LineUnavailableException {
+        int sampleRate = SAMPLE_RATE;
         AudioFormat audioFormat = new AudioFormat(sampleRate, 16, 1, true, true);
-        AudioFileFormat.Type[] audioFileTypes = AudioSystem.getAudioFileTypes();
-        for (AudioFileFormat.Type audioFileType : audioFileTypes) {
-            System.out.println("audioFileType = " + audioFileType);
+        AlgorithmSampleInputStream inputStream = new AlgorithmSampleInputStream(audioFormat.getSampleRate(), algorithm);
+        inputStream.setLevelMeter(levelMeter);
+        inputStream.setSpectrumAnalyzer(spectrumAnalyzer);
+        inputStream.setPlaybackTimeline(playbackTimeline);
+        inputStream.setTransport(transport);
+        inputStream.setWavRecorder(wavRecorder);
+        transport.rewind();
+        if (renderCache != null) {
+            inputStream.setRenderCache(renderCache);
         }
-        AudioFormat.Encoding[] targetEncodings = AudioSystem.getTargetEncodings(audioFormat);
-        for (AudioFormat.Encoding targetEncoding : targetEncodings) {
-            System.out.println("targetEncoding = " + targetEncoding);
-        }
-        InputStream inputStream = new AlgorithmSampleInputStream(audioFormat.getSampleRate(), algorithm);
 
-        SourceDataLine lineIn = AudioSystem.getSourceDataLine(audioFormat);
-        lineIn.addLineListener(event -> {
-            System.out.println("SourceDataLine: event = " + event);
-        });
-        lineIn.open(audioFormat);
+        final AudioSink lineIn = audioSink;
+        if (lowLatency) {
+            // The line can hold the maximum fill, but we only keep the target fill queued
+            lineIn.open(audioFormat, 2 * 2 * MAX_TARGET_FILL);
+        } else {
+            lineIn.open(audioFormat);
+        }
+        final int lineBufferSize = lineIn.getBufferSize() / 2;
 
-        lineIn.start();
+        playbackTimeline.start(lineIn);
         int numBytesRead = 0;
-        final int bufferSize = sampleRate / 10;
+        final int bufferSize = lowLatency ? LOW_LATENCY_BLOCK_SIZE : (int) (sampleRate * BLOCK_TIME);
         final byte[] audioData = new byte[2 * bufferSize];
-        long t0, t1, t2;
+        int targetFill = Math.min(stableTargetFill, lineBufferSize);
+        // Never shrink below a fill that ran dry in this session
+        int minTargetFill = Math.min(MIN_TARGET_FILL, targetFill);
+        long lastAdjustmentTime = System.nanoTime();
+        boolean stable = false;
+        boolean started = false;
+        long writtenFrameCount = 0;
+        final long blockNanos = 1_000_000_000L * bufferSize / sampleRate;
+        long t0, t1;
         try {
             while (numBytesRead != -1) {
+                if (lowLatency) {
+                    // Render as late as possible, so that parameter changes become audible quickly
+                    while (lineBufferSize - lineIn.available() / 2 + bufferSize > targetFill && !cancelled.getAsBoolean()) {
+                        LockSupport.parkNanos(blockNanos / 4);
+                    }
+                }
+                final RenderBlockEvent renderBlockEvent = RenderBlockEvent.isRecording() ? new RenderBlockEvent() : null;
+                if (renderBlockEvent != null) {
+                    renderBlockEvent.begin();
+                }
                 t0 = System.nanoTime();
                 numBytesRead = inputStream.read(audioData, 0, audioData.length);
                 t1 = System.nanoTime();
+                playbackTimeline.addRenderTime(t1 - t0);
+                if (numBytesRead > 0 && t1 - t0 > blockNanos * numBytesRead / (2 * bufferSize)) {
+                    playbackTimeline.addSlowBlock();
+                }
+                if (renderBlockEvent != null) {
+                    renderBlockEvent.end();
+                    if (renderBlockEvent.shouldCommit()) {
+                        renderBlockEvent.frameCount = Math.max(numBytesRead / 2, 0);
+                        renderBlockEvent.queuedFrameCount = lineBufferSize - lineIn.available() / 2;
+                        renderBlockEvent.targetFill = lowLatency ? targetFill : 0;
+                        renderBlockEvent.commit();
+                    }
+                }
                 if (numBytesRead >= 0) {
+                    if (lowLatency && writtenFrameCount >= targetFill) {
+                        if (lineIn.available() / 2 >= lineBufferSize) {
+                            // The line ran dry while we waited or rendered
+                            targetFill = Math.min(Math.min(2 * targetFill, MAX_TARGET_FILL), lineBufferSize);
+                            minTargetFill = targetFill;
+                            lastAdjustmentTime = t1;
+                            stable = false;
+                            playbackTimeline.addUnderrun();
+                            if (UnderrunEvent.isRecording()) {
+                                final UnderrunEvent underrunEvent = new UnderrunEvent();
+                                underrunEvent.targetFill = targetFill;
+                                underrunEvent.commit();
+                            }
+                        } else if (targetFill > minTargetFill && t1 - lastAdjustmentTime > SHRINK_NANOS) {
+                            targetFill = Math.max(targetFill - targetFill / 4, minTargetFill);
+                            lastAdjustmentTime = t1;
+                        } else if (!stable && t1 - lastAdjustmentTime > STABLE_NANOS) {
+                            stableTargetFill = targetFill;
+                            stable = true;
+                        }
+                    }
                     lineIn.write(audioData, 0, numBytesRead);
-                    t2 = System.nanoTime();
-
-                    double currentSampleRate = 1e9 * 0.5 * numBytesRead / (t1 - t0);
-                    if (currentSampleRate < sampleRate) {
-                        // todo: notify via this.recordObserver
-                        System.out.printf("WARNING: Current sample rate is at %.1f per second. " +
-                                        "This is only %.1f%% of the required sample rate!%n",
-                                currentSampleRate, 100. * currentSampleRate/sampleRate);
-                        System.out.printf("  read took %.1f ms for %s samples%n", (t1 - t0)/1e6, numBytesRead / 2);
-                        System.out.printf("  write took %.1f ms%n", (t2 - t1)/1e6);
-                        System.out.printf("  both took %.1f ms%n", (t2 - t0)/1e6);
+                    writtenFrameCount += numBytesRead / 2;
+                    // In low latency mode the line starts once the target fill is queued, not with the first block
+                    if (!started && (!lowLatency || writtenFrameCount + bufferSize > targetFill)) {
+                        lineIn.start();
+                        started = true;
                     }
                 }
-                if (isCancelled()) {
+                if (cancelled.getAsBoolean()) {
                     break;
                 }
             }
         } finally {
+            if (!started) {
+                lineIn.start();
+            }
             lineIn.drain();
+            playbackTimeline.stop(lineIn);
             lineIn.close();
         }
-
-        return null;
     }
 }
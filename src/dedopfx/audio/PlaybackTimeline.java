@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Relates rendered audio frames to audible ones.
+ * <p>
+ * Frame positions are counted continuously over all playback sessions, so positions stamped during an
+ * earlier session never appear to lie in the future of a later one. The renderer reports every frame it
+ * renders, the line reports the frames it has actually played. Whatever is buffered in between, in the
+ * renderer's block, the line's buffer or the mixer, is not audible yet, independent of buffer sizes.
+ */
+public class PlaybackTimeline {
+
+    private final AtomicLong renderedFramePosition = new AtomicLong();
+    private final AtomicLong underrunCount = new AtomicLong();
+    private final AtomicLong slowBlockCount = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+    private volatile long sessionStartPosition;
+    private final AtomicReference<AudioSink> line = new AtomicReference<>();
+
+    /**
+     * Starts a playback session. Called by the audio thread after the line has been opened and before
+     * the first frame is rendered.
+     */
+    public void start(AudioSink line) {
+        sessionStartPosition = renderedFramePosition.get();
+        this.line.set(line);
+    }
+
+    /**
+     * Ends the playback session of the given line. Called by the audio thread after the line has been drained.
+     * From now on all rendered frames count as played. Does nothing if a session of another line has been
+     * started in the meantime.
+     */
+    public void stop(AudioSink line) {
+        this.line.compareAndSet(line, null);
+    }
+
+    /**
+     * Called by the renderer before it renders the frame with the given index within the current session.
+     */
+    public void setRenderedFrame(long frameIndex) {
+        renderedFramePosition.lazySet(sessionStartPosition + frameIndex);
+    }
+
+    public long getRenderedFramePosition() {
+        return renderedFramePosition.get();
+    }
+
+    /**
+     * @return The position of the frame currently being heard, never greater than the rendered position.
+     */
+    public long getPlayedFramePosition() {
+        // Read the line first, start() publishes the session start position before the line
+        final AudioSink line = this.line.get();
+        final long sessionStartPosition = this.sessionStartPosition;
+        final long renderedFramePosition = this.renderedFramePosition.get();
+        if (line == null) {
+            return renderedFramePosition;
+        }
+        return Math.min(renderedFramePosition, sessionStartPosition + line.getLongFramePosition());
+    }
+
+    /**
+     * @return The number of rendered frames that have not been heard yet.
+     */
+    public long getLatencyFrameCount() {
+        return getRenderedFramePosition() - getPlayedFramePosition();
+    }
+
+    /**
+     * Called by the audio thread if the line has run out of frames.
+     */
+    public void addUnderrun() {
+        underrunCount.incrementAndGet();
+    }
+
+    /**
+     * Called by the audio thread if rendering a block took longer than playing it.
+     */
+    public void addSlowBlock() {
+        // The audio thread is the only writer
+        slowBlockCount.lazySet(slowBlockCount.get() + 1);
+    }
+
+    /**
+     * Called by the audio thread with the time it took to render a block.
+     */
+    public void addRenderTime(long nanos) {
+        // The audio thread is the only writer
+        renderNanos.lazySet(renderNanos.get() + nanos);
+    }
+
+    /**
+     * @return The total time spent rendering, in nanoseconds.
+     */
+    public long getRenderNanos() {
+        return renderNanos.get();
+    }
+
+    public long getUnderrunCount() {
+        return underrunCount.get();
+    }
+
+    public long getSlowBlockCount() {
+        return slowBlockCount.get();
+    }
+
+    public boolean isPlaying() {
+        return line.get() != null;
+    }
+}
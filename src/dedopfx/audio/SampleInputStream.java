@@ -55,6 +55,32 @@ public abstract class SampleInputStream extends InputStream {
         }
     }
 
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        if (this.hasSample) {
+            this.hasSample = false;
+            b[off + n++] = (byte) this.currentSample;
+        }
+        while (n + 1 < len && hasMoreSamples()) {
+            final short sample = nextSample();
+            b[off + n++] = (byte) (sample >>> 8);
+            b[off + n++] = (byte) sample;
+        }
+        if (n < len && hasMoreSamples()) {
+            this.currentSample = nextSample();
+            this.hasSample = true;
+            b[off + n++] = (byte) (this.currentSample >>> 8);
+        }
+        return n > 0 ? n : -1;
+    }
+
     protected abstract boolean hasMoreSamples() throws IOException;
 
     protected abstract short nextSample() throws IOException;
@@ -0,0 +1,206 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An audio sink without a sound card, for testing real-time behaviour on headless machines.
+ * <p>
+ * A virtual device consumes the buffer in periods at a clock rate relative to the nominal sample rate, every
+ * period's deadline is shifted by Gaussian jitter drawn from a seeded random generator. If a period is due and
+ * the buffer holds fewer frames than the period, an underrun is recorded and the missing frames are played as
+ * silence. Like a sound card, the device clock starts with the first frames written after {@link #start()}.
+ * The device is advanced lazily against {@link System#nanoTime()} whenever the sink is used.
+ */
+public class SimulatedAudioSink implements AudioSink {
+
+    public static final int DEFAULT_BUFFER_FRAME_COUNT = 22050;
+    public static final int DEFAULT_PERIOD_FRAME_COUNT = 256;
+
+    private final int defaultBufferFrameCount;
+    private final int periodFrameCount;
+    private final double clockRate;
+    private final long jitterNanos;
+    private final Random random;
+
+    private int frameSize;
+    private long periodNanos;
+    private int bufferFrameCount;
+    private int bufferedFrameCount;
+    private long playedFrameCount;
+    private long nextPeriodTime;
+    private boolean running;
+    private boolean draining;
+    private long underrunCount;
+    private long underrunFrameCount;
+
+    public SimulatedAudioSink() {
+        this(DEFAULT_BUFFER_FRAME_COUNT, DEFAULT_PERIOD_FRAME_COUNT, 1., 0L, 0L);
+    }
+
+    /**
+     * @param defaultBufferFrameCount The buffer size used by {@link #open(AudioFormat)} in frames.
+     * @param periodFrameCount        The number of frames consumed at once by the virtual device.
+     * @param clockRate               The device clock relative to the nominal sample rate, e.g. 1.001 for a fast clock.
+     * @param jitterNanos             The standard deviation of the period deadlines in nanoseconds.
+     * @param seed                    The seed of the jitter.
+     */
+    public SimulatedAudioSink(int defaultBufferFrameCount, int periodFrameCount, double clockRate, long jitterNanos, long seed) {
+        this.defaultBufferFrameCount = defaultBufferFrameCount;
+        this.periodFrameCount = periodFrameCount;
+        this.clockRate = clockRate;
+        this.jitterNanos = jitterNanos;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void open(AudioFormat audioFormat) {
+        open(audioFormat, defaultBufferFrameCount * audioFormat.getFrameSize());
+    }
+
+    @Override
+    public synchronized void open(AudioFormat audioFormat, int bufferSize) {
+        frameSize = audioFormat.getFrameSize();
+        periodNanos = Math.round(1e9 * periodFrameCount / (clockRate * audioFormat.getFrameRate()));
+        bufferFrameCount = Math.max(bufferSize / frameSize, periodFrameCount);
+        bufferedFrameCount = 0;
+        playedFrameCount = 0;
+        underrunCount = 0;
+        underrunFrameCount = 0;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        draining = false;
+        // Frames written before the start are played from now on
+        nextPeriodTime = bufferedFrameCount > 0 ? System.nanoTime() + periodNanos : 0L;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferFrameCount * frameSize;
+    }
+
+    @Override
+    public synchronized int available() {
+        update();
+        return (bufferFrameCount - bufferedFrameCount) * frameSize;
+    }
+
+    @Override
+    public int write(byte[] b, int off, int len) {
+        int remainingFrameCount = len / frameSize;
+        while (remainingFrameCount > 0) {
+            final long waitNanos;
+            synchronized (this) {
+                update();
+                final int frameCount = Math.min(remainingFrameCount, bufferFrameCount - bufferedFrameCount);
+                bufferedFrameCount += frameCount;
+                remainingFrameCount -= frameCount;
+                if (running && nextPeriodTime == 0L && bufferedFrameCount > 0) {
+                    nextPeriodTime = System.nanoTime() + periodNanos;
+                }
+                waitNanos = nextPeriodTime - System.nanoTime();
+            }
+            if (remainingFrameCount > 0) {
+                LockSupport.parkNanos(Math.max(waitNanos, 10_000L));
+            }
+        }
+        return len;
+    }
+
+    @Override
+    public synchronized long getLongFramePosition() {
+        update();
+        return playedFrameCount;
+    }
+
+    @Override
+    public void drain() {
+        while (true) {
+            final long waitNanos;
+            synchronized (this) {
+                update();
+                if (bufferedFrameCount == 0 || !running) {
+                    return;
+                }
+                draining = true;
+                waitNanos = nextPeriodTime - System.nanoTime();
+            }
+            LockSupport.parkNanos(Math.max(waitNanos, 10_000L));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        bufferedFrameCount = 0;
+    }
+
+    /**
+     * @return The number of periods that found the buffer short of frames.
+     */
+    public synchronized long getUnderrunCount() {
+        update();
+        return underrunCount;
+    }
+
+    /**
+     * @return The number of frames played as silence because of underruns.
+     */
+    public synchronized long getUnderrunFrameCount() {
+        update();
+        return underrunFrameCount;
+    }
+
+    private void update() {
+        if (!running || nextPeriodTime == 0L) {
+            return;
+        }
+        final long now = System.nanoTime();
+        while (nextPeriodTime <= now) {
+            if (draining && bufferedFrameCount < periodFrameCount) {
+                // The last, partial period
+                playedFrameCount += bufferedFrameCount;
+                bufferedFrameCount = 0;
+                return;
+            }
+            if (bufferedFrameCount < periodFrameCount) {
+                underrunCount++;
+                underrunFrameCount += periodFrameCount - bufferedFrameCount;
+                bufferedFrameCount = 0;
+            } else {
+                bufferedFrameCount -= periodFrameCount;
+            }
+            playedFrameCount += periodFrameCount;
+            nextPeriodTime += periodNanos + (jitterNanos > 0 ? Math.round(jitterNanos * random.nextGaussian()) : 0L);
+        }
+    }
+}
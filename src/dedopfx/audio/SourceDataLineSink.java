@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays audio through a {@link SourceDataLine} of the default mixer.
+ */
+public class SourceDataLineSink implements AudioSink {
+
+    private SourceDataLine line;
+
+    @Override
+    public void open(AudioFormat audioFormat) throws LineUnavailableException {
+        createLine(audioFormat).open(audioFormat);
+    }
+
+    @Override
+    public void open(AudioFormat audioFormat, int bufferSize) throws LineUnavailableException {
+        createLine(audioFormat).open(audioFormat, bufferSize);
+    }
+
+    private SourceDataLine createLine(AudioFormat audioFormat) throws LineUnavailableException {
+        line = AudioSystem.getSourceDataLine(audioFormat);
+        line.addLineListener(event -> {
+            System.out.println("SourceDataLine: event = " + event);
+        });
+        return line;
+    }
+
+    @Override
+    public void start() {
+        line.start();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return line.getBufferSize();
+    }
+
+    @Override
+    public int available() {
+        return line.available();
+    }
+
+    @Override
+    public int write(byte[] b, int off, int len) {
+        return line.write(b, off, len);
+    }
+
+    @Override
+    public long getLongFramePosition() {
+        return line.getLongFramePosition();
+    }
+
+    @Override
+    public void drain() {
+        line.drain();
+    }
+
+    @Override
+    public void close() {
+        line.close();
+    }
+}
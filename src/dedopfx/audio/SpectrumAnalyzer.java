@@ -0,0 +1,218 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Computes magnitude spectra of the rendered output on its own low priority thread.
+ * <p>
+ * The renderer taps samples with {@link #put(float)} and makes them visible with {@link #publish()} once per
+ * block. The sample ring is never checked by the renderer, so the tap cannot block or slow it down. If the
+ * analyzer falls behind, it skips to the most recent samples and the frames in between are dropped.
+ * <p>
+ * Spectra are Hann windowed, taken every {@link #getHopSize()} samples and written as normalized dB
+ * magnitudes ({@code 0} is {@link #MIN_DB}, {@code 1} is full scale) into a ring of frames that the UI
+ * reads with {@link #readFrames(FrameObserver)}.
+ * <p>
+ * The sample rate, which paces the analyzer thread, is set by the renderer with {@link #setSampleRate(double)}.
+ */
+public class SpectrumAnalyzer {
+
+    public static final int DEFAULT_FFT_SIZE = 1024;
+    public static final double MIN_DB = -90.;
+    public static final double DEFAULT_SAMPLE_RATE = 44100.;
+
+    private static final int SAMPLE_RING_SIZE = 1 << 15;
+    private static final int MAX_BLOCK_SIZE = SAMPLE_RING_SIZE / 4;
+    private static final int FRAME_RING_SIZE = 64;
+
+    public interface FrameObserver {
+        void onFrame(float[] magnitudes);
+    }
+
+    private final FFT fft;
+    private final int hopSize;
+    private final double[] window;
+    private final double[] re;
+    private final double[] im;
+    private final double magnitudeScaling;
+
+    private final float[] sampleRing = new float[SAMPLE_RING_SIZE];
+    private final AtomicLong sampleWritePosition = new AtomicLong();
+    private long samplePutPosition;
+    private long sampleReadPosition;
+
+    private final float[][] frameRing;
+    private final AtomicLong frameWritePosition = new AtomicLong();
+    private long frameReadPosition;
+    private final float[] frameCopy;
+
+    private final AtomicLong droppedFrameCount = new AtomicLong();
+    private volatile double sampleRate = DEFAULT_SAMPLE_RATE;
+    private volatile Thread thread;
+
+    public SpectrumAnalyzer() {
+        this(DEFAULT_FFT_SIZE);
+    }
+
+    public SpectrumAnalyzer(int fftSize) {
+        this.fft = new FFT(fftSize);
+        this.hopSize = fftSize / 2;
+        this.window = new double[fftSize];
+        double windowSum = 0.;
+        for (int i = 0; i < fftSize; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2. * Math.PI * i / (fftSize - 1));
+            windowSum += window[i];
+        }
+        // A full scale sine wave gives a magnitude of 1
+        this.magnitudeScaling = 2. / windowSum;
+        this.re = new double[fftSize];
+        this.im = new double[fftSize];
+        this.frameRing = new float[FRAME_RING_SIZE][fftSize / 2];
+        this.frameCopy = new float[fftSize / 2];
+    }
+
+    public int getBinCount() {
+        return fft.getSize() / 2;
+    }
+
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Sets the sample rate of the analyzed samples. Called by the renderer before the first sample is put.
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public long getDroppedFrameCount() {
+        return droppedFrameCount.get();
+    }
+
+    /**
+     * Adds a sample. Called by the renderer for every sample, the sample is not visible to the analyzer
+     * before {@link #publish()} is called.
+     */
+    public void put(float sample) {
+        sampleRing[(int) samplePutPosition & (SAMPLE_RING_SIZE - 1)] = sample;
+        samplePutPosition++;
+    }
+
+    /**
+     * Makes all samples added so far visible to the analyzer. Called by the renderer once per block.
+     */
+    public void publish() {
+        sampleWritePosition.lazySet(samplePutPosition);
+    }
+
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this::run, "SpectrumAnalyzer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+    }
+
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Passes all frames computed since the last call to the given observer, oldest first. Must only be called
+     * from a single consumer thread. The magnitudes array is only valid during the call.
+     *
+     * @return The number of frames passed.
+     */
+    public int readFrames(FrameObserver observer) {
+        final long writePosition = frameWritePosition.get();
+        if (writePosition - frameReadPosition > FRAME_RING_SIZE - 1) {
+            frameReadPosition = writePosition - (FRAME_RING_SIZE - 1);
+        }
+        int count = 0;
+        while (frameReadPosition < writePosition) {
+            final float[] frame = frameRing[(int) frameReadPosition % FRAME_RING_SIZE];
+            System.arraycopy(frame, 0, frameCopy, 0, frameCopy.length);
+            // The analyzer may have lapped us while copying, in which case the copy is torn
+            if (frameWritePosition.get() - frameReadPosition < FRAME_RING_SIZE) {
+                observer.onFrame(frameCopy);
+                count++;
+            }
+            frameReadPosition++;
+        }
+        return count;
+    }
+
+    private void run() {
+        final int fftSize = fft.getSize();
+        while (!Thread.currentThread().isInterrupted()) {
+            final long hopNanos = (long) (1e9 * hopSize / sampleRate);
+            final long writePosition = sampleWritePosition.get();
+            if (writePosition - sampleReadPosition > SAMPLE_RING_SIZE / 2) {
+                final long skippedPosition = writePosition - fftSize;
+                droppedFrameCount.addAndGet((skippedPosition - sampleReadPosition) / hopSize);
+                sampleReadPosition = skippedPosition;
+            }
+            if (writePosition - sampleReadPosition < fftSize) {
+                LockSupport.parkNanos(hopNanos / 2);
+                continue;
+            }
+
+            for (int i = 0; i < fftSize; i++) {
+                re[i] = window[i] * sampleRing[(int) (sampleReadPosition + i) & (SAMPLE_RING_SIZE - 1)];
+                im[i] = 0.;
+            }
+            final long windowStart = sampleReadPosition;
+            sampleReadPosition += hopSize;
+            // The renderer may have overwritten the window while we copied it, allow for one unpublished block
+            if (sampleWritePosition.get() + MAX_BLOCK_SIZE - windowStart > SAMPLE_RING_SIZE) {
+                droppedFrameCount.incrementAndGet();
+                continue;
+            }
+
+            fft.transform(re, im);
+
+            final long framePosition = frameWritePosition.get();
+            final float[] frame = frameRing[(int) framePosition % FRAME_RING_SIZE];
+            for (int i = 0; i < frame.length; i++) {
+                final double magnitude = magnitudeScaling * Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+                final double db = magnitude > 0. ? 20. * Math.log10(magnitude) : MIN_DB;
+                frame[i] = (float) Math.max(0., Math.min(1., (db - MIN_DB) / -MIN_DB));
+            }
+            frameWritePosition.lazySet(framePosition + 1);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records the rendered output to a 16 bit mono PCM WAV file.
+ * <p>
+ * The renderer tees every block into a preallocated ring with {@link #write(byte[], int, int)}, which never
+ * blocks: if the ring is full because the disk stalls, the block is dropped and counted. A writer thread
+ * drains the ring through a large direct buffer into a {@link FileChannel}, swapping the renderer's big-endian
+ * samples to the little-endian byte order of WAV. The sizes in the header are patched when recording stops.
+ */
+public class WavRecorder {
+
+    private static final int RING_SIZE = 1 << 20;
+    private static final int WRITE_BUFFER_SIZE = 1 << 18;
+    private static final int HEADER_SIZE = 44;
+    private static final long PARK_NANOS = 20_000_000L;
+
+    private final float sampleRate;
+    private final byte[] ring = new byte[RING_SIZE];
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private final AtomicLong droppedFrameCount = new AtomicLong();
+
+    private volatile boolean recording;
+    private volatile IOException error;
+    private Thread thread;
+
+    public WavRecorder(float sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * @return The error that made the recording stop, or {@code null}.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    public long getDroppedFrameCount() {
+        return droppedFrameCount.get();
+    }
+
+    /**
+     * Starts recording into the given file. Waits for a previous recording to be completely written.
+     */
+    public synchronized void start(File file) throws IOException {
+        stop();
+        join();
+        final FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            channel.write(createHeader(0));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        error = null;
+        droppedFrameCount.set(0);
+        readPosition.set(writePosition.get());
+        recording = true;
+        thread = new Thread(() -> run(channel), "WavRecorder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops recording. The writer thread writes the remaining samples and completes the file asynchronously.
+     */
+    public synchronized void stop() {
+        recording = false;
+    }
+
+    /**
+     * Waits until the file of the last recording has been completed.
+     */
+    public synchronized void join() {
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    /**
+     * Adds a block of 16 bit big-endian samples. Called by the renderer after each block, never blocks.
+     */
+    public void write(byte[] b, int off, int len) {
+        if (!recording || len <= 0) {
+            return;
+        }
+        final long position = writePosition.get();
+        if (position + len - readPosition.get() > RING_SIZE) {
+            droppedFrameCount.addAndGet(len / 2);
+            return;
+        }
+        final int index = (int) (position & (RING_SIZE - 1));
+        final int firstLength = Math.min(len, RING_SIZE - index);
+        System.arraycopy(b, off, ring, index, firstLength);
+        System.arraycopy(b, off + firstLength, ring, 0, len - firstLength);
+        writePosition.lazySet(position + len);
+    }
+
+    private void run(FileChannel channel) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        long dataSize = 0;
+        try {
+            boolean lastPass = false;
+            while (!lastPass) {
+                lastPass = !recording;
+                final long position = readPosition.get();
+                // Whole frames only, a block is published with a single position update
+                final long available = (writePosition.get() - position) & ~1L;
+                if (available == 0) {
+                    if (!lastPass) {
+                        LockSupport.parkNanos(PARK_NANOS);
+                    }
+                    continue;
+                }
+                final int length = (int) Math.min(available, WRITE_BUFFER_SIZE);
+                buffer.clear();
+                for (int i = 0; i < length; i += 2) {
+                    final int index = (int) ((position + i) & (RING_SIZE - 1));
+                    buffer.put(ring[index + 1]);
+                    buffer.put(ring[index]);
+                }
+                readPosition.lazySet(position + length);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                dataSize += length;
+                // Keep draining until the ring is empty, even after recording has been stopped
+                lastPass = false;
+            }
+            channel.write(createHeader(dataSize), 0);
+        } catch (IOException e) {
+            error = e;
+            recording = false;
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+    }
+
+    private ByteBuffer createHeader(long dataSize) {
+        final int frameSize = 2;
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'});
+        header.putInt((int) Math.min(0xffffffffL, 36 + dataSize));
+        header.put(new byte[]{'W', 'A', 'V', 'E'});
+        header.put(new byte[]{'f', 'm', 't', ' '});
+        header.putInt(16);
+        header.putShort((short) 1);
+        header.putShort((short) 1);
+        header.putInt((int) sampleRate);
+        header.putInt((int) sampleRate * frameSize);
+        header.putShort((short) frameSize);
+        header.putShort((short) 16);
+        header.put(new byte[]{'d', 'a', 't', 'a'});
+        header.putInt((int) Math.min(0xffffffffL, dataSize));
+        header.flip();
+        return header;
+    }
+}
@@ -28,8 +28,48 @@ public interface Waveform {
 
     double compute(double t);
 
+    /**
+     * Computes the band-limited waveform for a phase increment of {@code dt} cycles per sample, i.e. the
+     * frequency divided by the sample rate. Discontinuities are smoothed with polynomial corrections over one
+     * sample on either side, so the cost stays close to {@link #compute(double)}. Waveforms without
+     * discontinuities return {@link #compute(double)}.
+     */
+    default double compute(double t, double dt) {
+        return compute(t);
+    }
+
     String toString();
 
+    /**
+     * The residual of a band-limited step (PolyBLEP) for a step from -1 to 1 at phase 0, {@code x} is the phase
+     * in [0, 1).
+     */
+    static double polyBlep(double x, double dt) {
+        if (x < dt) {
+            x /= dt;
+            return x + x - x * x - 1.0;
+        } else if (x > 1.0 - dt) {
+            x = (x - 1.0) / dt;
+            return x * x + x + x + 1.0;
+        }
+        return 0.0;
+    }
+
+    /**
+     * The residual of a band-limited ramp (PolyBLAMP), the integral of {@link #polyBlep(double, double)}, for a
+     * change of slope by 2 per sample at phase 0, {@code x} is the phase in [0, 1).
+     */
+    static double polyBlamp(double x, double dt) {
+        if (x < dt) {
+            x = x / dt - 1.0;
+            return -x * x * x / 3.0;
+        } else if (x > 1.0 - dt) {
+            x = (x - 1.0) / dt + 1.0;
+            return x * x * x / 3.0;
+        }
+        return 0.0;
+    }
+
     Waveform SINE = new Waveform() {
         double TWO_PI = 2.0 * Math.PI;
 
@@ -51,6 +91,18 @@ public interface Waveform {
             return x < 0.5 ? 1.0 : -1.0;
         }
 
+        @Override
+        public final double compute(double t, double dt) {
+            double x = t - Math.floor(t);
+            double value = x < 0.5 ? 1.0 : -1.0;
+            double x2 = x < 0.5 ? x + 0.5 : x - 0.5;
+            // Most samples are further than dt from both edges and need no correction
+            if (Math.abs((x < 0.5 ? x : x2) - 0.25) < 0.25 - dt) {
+                return value;
+            }
+            return value + Waveform.polyBlep(x, dt) - Waveform.polyBlep(x2, dt);
+        }
+
         @Override
         public String toString() {
             return "Square";
@@ -69,6 +121,19 @@ public interface Waveform {
             }
         }
 
+        @Override
+        public final double compute(double t, double dt) {
+            t += 0.25;
+            double x = t - Math.floor(t);
+            double x2 = x < 0.5 ? x + 0.5 : x - 0.5;
+            double value = x < 0.5 ? 4.0 * x - 1.0 : 3.0 - 4.0 * x;
+            if (Math.abs((x < 0.5 ? x : x2) - 0.25) < 0.25 - dt) {
+                return value;
+            }
+            // The slope changes by 8 per cycle, i.e. 8 * dt per sample, at the minimum and by -8 at the maximum
+            return value + 4.0 * dt * (Waveform.polyBlamp(x, dt) - Waveform.polyBlamp(x2, dt));
+        }
+
         @Override
         public String toString() {
             return "Triangle";
@@ -83,6 +148,16 @@ public interface Waveform {
             return 2.0 * x - 1.0;
         }
 
+        @Override
+        public final double compute(double t, double dt) {
+            t += 0.5;
+            double x = t - Math.floor(t);
+            if (Math.abs(x - 0.5) < 0.5 - dt) {
+                return 2.0 * x - 1.0;
+            }
+            return 2.0 * x - 1.0 - Waveform.polyBlep(x, dt);
+        }
+
         @Override
         public String toString() {
             return "Sawtooth";
@@ -110,6 +185,11 @@ public interface Waveform {
                 return 0.5 * (waveform1.compute(t) + waveform2.compute(t));
             }
 
+            @Override
+            public double compute(double t, double dt) {
+                return 0.5 * (waveform1.compute(t, dt) + waveform2.compute(t, dt));
+            }
+
             @Override
             public String toString() {
                 return name;
@@ -125,6 +205,11 @@ public interface Waveform {
                 return (waveform1.compute(t) + waveform2.compute(t) + waveform3.compute(t)) / 3.0;
             }
 
+            @Override
+            public double compute(double t, double dt) {
+                return (waveform1.compute(t, dt) + waveform2.compute(t, dt) + waveform3.compute(t, dt)) / 3.0;
+            }
+
             @Override
             public String toString() {
                 return name;
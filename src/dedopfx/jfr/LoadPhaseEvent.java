@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One phase of loading a source file. The decode phase also reports the range of the decoded source values,
+ * the other phases report NaN.
+ */
+@Name("dedopfx.LoadPhase")
+@Label("Load Phase")
+@Category({"DeDop", "Source"})
+public class LoadPhaseEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Record Count")
+    public int recordCount;
+
+    @Label("Minimum Value")
+    public double minValue;
+
+    @Label("Maximum Value")
+    public double maxValue;
+
+    /**
+     * Ends the phase begun with {@link #begin()} and commits it, if recording.
+     */
+    public void commit(String phase, String path, int recordCount) {
+        commit(phase, path, recordCount, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Ends the phase begun with {@link #begin()} and commits it together with the range of the values it decoded,
+     * if recording.
+     */
+    public void commit(String phase, String path, int recordCount, double minValue, double maxValue) {
+        end();
+        if (shouldCommit()) {
+            this.phase = phase;
+            this.path = path;
+            this.recordCount = recordCount;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The rendering of one block of audio by the playback loop.
+ */
+@Name("dedopfx.RenderBlock")
+@Label("Render Block")
+@Category({"DeDop", "Audio"})
+@Description("Rendering of one block of audio, the duration must stay below the block's play time")
+public class RenderBlockEvent extends Event {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(RenderBlockEvent.class);
+
+    /**
+     * @return Whether a recording is enabled for this event, so that the audio thread only creates it if needed.
+     */
+    public static boolean isRecording() {
+        return EVENT_TYPE.isEnabled();
+    }
+
+    @Label("Frame Count")
+    public int frameCount;
+
+    @Label("Queued Frame Count")
+    @Description("Frames queued in the audio line before the block was written")
+    public int queuedFrameCount;
+
+    @Label("Target Fill")
+    @Description("Frames the low latency mode keeps queued, 0 in normal mode")
+    public int targetFill;
+}
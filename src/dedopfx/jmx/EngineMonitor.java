@@ -0,0 +1,276 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.jmx;
+
+import dedopfx.algo.AlgorithmInputs;
+import dedopfx.algo.SynthesisEngine;
+import dedopfx.algo.SynthesisEngineProvider;
+import dedopfx.algo.SynthesisEngines;
+import dedopfx.audio.Harmonics;
+import dedopfx.audio.PlayAudioTask;
+import dedopfx.audio.PlaybackTimeline;
+import dedopfx.audio.Waveform;
+import javafx.application.Platform;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Exposes the audio engine to JMX tools under {@link #OBJECT_NAME}.
+ * <p>
+ * Metrics are read from counters the audio thread publishes without locking, so monitoring never blocks or
+ * slows down rendering. Parameter changes are applied on the JavaFX application thread, like changes made in the UI.
+ */
+public class EngineMonitor implements EngineMonitorMBean {
+
+    public static final String OBJECT_NAME = "dedopfx:type=EngineMonitor";
+
+    private static final long MIN_RATE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final SynthesisEngine algorithm;
+    private final AlgorithmInputs algorithmInputs;
+    private final PlaybackTimeline playbackTimeline;
+
+    private long lastRateTime;
+    private long lastRenderedFrameCount;
+    private long lastRenderNanos;
+    private double renderThroughput;
+
+    public EngineMonitor(SynthesisEngine algorithm, PlaybackTimeline playbackTimeline) {
+        this.algorithm = algorithm;
+        this.algorithmInputs = algorithm.getAlgorithmInputs();
+        this.playbackTimeline = playbackTimeline;
+    }
+
+    /**
+     * Registers the monitor with the platform MBean server, failures are only reported.
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.out.printf("WARNING: Failed to register %s: %s%n", OBJECT_NAME, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playbackTimeline.isPlaying();
+    }
+
+    @Override
+    public long getRenderedFrameCount() {
+        return playbackTimeline.getRenderedFramePosition();
+    }
+
+    @Override
+    public synchronized double getRenderThroughput() {
+        final long now = System.nanoTime();
+        if (now - lastRateTime >= MIN_RATE_INTERVAL_NANOS) {
+            final long renderedFrameCount = playbackTimeline.getRenderedFramePosition();
+            final long renderNanos = playbackTimeline.getRenderNanos();
+            if (renderNanos > lastRenderNanos) {
+                renderThroughput = 1e9 * (renderedFrameCount - lastRenderedFrameCount) / (renderNanos - lastRenderNanos);
+            }
+            lastRateTime = now;
+            lastRenderedFrameCount = renderedFrameCount;
+            lastRenderNanos = renderNanos;
+        }
+        return renderThroughput;
+    }
+
+    @Override
+    public double getLoadRatio() {
+        final double renderThroughput = getRenderThroughput();
+        return renderThroughput > 0. ? PlayAudioTask.SAMPLE_RATE / renderThroughput : 0.;
+    }
+
+    @Override
+    public long getUnderrunCount() {
+        return playbackTimeline.getUnderrunCount();
+    }
+
+    @Override
+    public long getSlowBlockCount() {
+        return playbackTimeline.getSlowBlockCount();
+    }
+
+    @Override
+    public long getBufferedFrameCount() {
+        return playbackTimeline.getLatencyFrameCount();
+    }
+
+    @Override
+    public int getCurrentRecordIndex() {
+        return algorithm.getCurrentRecordIndex();
+    }
+
+    @Override
+    public int getRecordCount() {
+        final double[][] sourceValues = algorithmInputs.getSourceValues();
+        return sourceValues != null ? sourceValues.length : 0;
+    }
+
+    @Override
+    public int getBinCount() {
+        final double[][] sourceValues = algorithmInputs.getSourceValues();
+        return sourceValues != null && sourceValues.length > 0 ? sourceValues[0].length : 0;
+    }
+
+    @Override
+    public long getDatasetBytes() {
+        return 8L * getRecordCount() * getBinCount();
+    }
+
+    @Override
+    public long getHeapUsedBytes() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Override
+    public long getHeapMaxBytes() {
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    @Override
+    public double getGain() {
+        return algorithmInputs.getGain();
+    }
+
+    @Override
+    public void setGain(double gain) {
+        Platform.runLater(() -> algorithmInputs.gainProperty().set(gain));
+    }
+
+    @Override
+    public int getVelocity() {
+        return algorithmInputs.getVelocity();
+    }
+
+    @Override
+    public void setVelocity(int velocity) {
+        Platform.runLater(() -> algorithmInputs.velocityProperty().set(velocity));
+    }
+
+    @Override
+    public int getMinRecordIndex() {
+        return algorithmInputs.getMinRecordIndex();
+    }
+
+    @Override
+    public void setMinRecordIndex(int minRecordIndex) {
+        Platform.runLater(() -> algorithmInputs.minRecordIndexProperty().set(minRecordIndex));
+    }
+
+    @Override
+    public int getMaxRecordIndex() {
+        return algorithmInputs.getMaxRecordIndex();
+    }
+
+    @Override
+    public void setMaxRecordIndex(int maxRecordIndex) {
+        Platform.runLater(() -> algorithmInputs.maxRecordIndexProperty().set(maxRecordIndex));
+    }
+
+    @Override
+    public String getEngine() {
+        return algorithmInputs.getEngine();
+    }
+
+    @Override
+    public void setEngine(String engine) {
+        for (SynthesisEngineProvider provider : SynthesisEngines.getProviders()) {
+            if (provider.getId().equalsIgnoreCase(engine)) {
+                Platform.runLater(() -> algorithmInputs.engineProperty().set(provider.getId()));
+                return;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown value \"%s\"", engine));
+    }
+
+    @Override
+    public String getCarrierWaveform() {
+        return algorithmInputs.getCarrierWaveform().toString();
+    }
+
+    @Override
+    public void setCarrierWaveform(String carrierWaveform) {
+        final Waveform waveform = findValue(carrierWaveform, Waveform.WAVEFORMS);
+        Platform.runLater(() -> algorithmInputs.carrierWaveformProperty().setValue(waveform));
+    }
+
+    @Override
+    public String getHarmonicsMode() {
+        return algorithmInputs.getHarmonicsMode().toString();
+    }
+
+    @Override
+    public void setHarmonicsMode(String harmonicsMode) {
+        final Harmonics harmonics = findValue(harmonicsMode, Harmonics.values());
+        Platform.runLater(() -> algorithmInputs.setHarmonicsMode(harmonics));
+    }
+
+    @Override
+    public int getPartialCount() {
+        return algorithmInputs.getPartialCount();
+    }
+
+    @Override
+    public void setPartialCount(int partialCount) {
+        Platform.runLater(() -> algorithmInputs.partialCountProperty().set(partialCount));
+    }
+
+    @Override
+    public boolean isModulationEnabled() {
+        return algorithmInputs.isModulationEnabled();
+    }
+
+    @Override
+    public void setModulationEnabled(boolean modulationEnabled) {
+        Platform.runLater(() -> algorithmInputs.setModulationEnabled(modulationEnabled));
+    }
+
+    @Override
+    public double getModulationDepth() {
+        return algorithmInputs.getModulationDepth();
+    }
+
+    @Override
+    public void setModulationDepth(double modulationDepth) {
+        Platform.runLater(() -> algorithmInputs.modulationDepthProperty().set(modulationDepth));
+    }
+
+    private static <T> T findValue(String name, T[] values) {
+        for (T value : values) {
+            if (value.toString().equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown value \"%s\"", name));
+    }
+}
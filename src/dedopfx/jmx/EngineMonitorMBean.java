@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.jmx;
+
+/**
+ * Live metrics and key parameters of the audio engine, see {@link EngineMonitor}.
+ */
+public interface EngineMonitorMBean {
+
+    boolean isPlaying();
+
+    long getRenderedFrameCount();
+
+    /**
+     * @return Frames rendered per second of render time, averaged over at least the last second.
+     */
+    double getRenderThroughput();
+
+    /**
+     * @return Render time relative to play time, values of 1 and above cannot be played in real-time.
+     */
+    double getLoadRatio();
+
+    long getUnderrunCount();
+
+    /**
+     * @return Blocks that took longer to render than to play.
+     */
+    long getSlowBlockCount();
+
+    /**
+     * @return Rendered frames that have not been played yet.
+     */
+    long getBufferedFrameCount();
+
+    int getCurrentRecordIndex();
+
+    int getRecordCount();
+
+    int getBinCount();
+
+    long getDatasetBytes();
+
+    long getHeapUsedBytes();
+
+    long getHeapMaxBytes();
+
+    double getGain();
+
+    void setGain(double gain);
+
+    int getVelocity();
+
+    void setVelocity(int velocity);
+
+    int getMinRecordIndex();
+
+    void setMinRecordIndex(int minRecordIndex);
+
+    int getMaxRecordIndex();
+
+    void setMaxRecordIndex(int maxRecordIndex);
+
+    /**
+     * @return The identifier of the selected synthesis engine.
+     */
+    String getEngine();
+
+    void setEngine(String engine);
+
+    String getCarrierWaveform();
+
+    void setCarrierWaveform(String carrierWaveform);
+
+    String getHarmonicsMode();
+
+    void setHarmonicsMode(String harmonicsMode);
+
+    int getPartialCount();
+
+    void setPartialCount(int partialCount);
+
+    boolean isModulationEnabled();
+
+    void setModulationEnabled(boolean modulationEnabled);
+
+    double getModulationDepth();
+
+    void setModulationDepth(double modulationDepth);
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.source;
+
+import dedopfx.jfr.LoadPhaseEvent;
+import ucar.ma2.Array;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The scaled echo samples of a Sentinel-3 / CryoSat L1B NetCDF file, decoded without any UI dependencies.
+ */
+public class L1bSourceValues {
+
+    public static final String WAVEFORM_COUNTS_VAR_NAME = "i2q2_meas_ku_l1b_echo_sar_ku";
+    public static final String WAVEFORM_SCALINGS_VAR_NAME = "scale_factor_ku_l1b_echo_sar_ku";
+
+    public interface ProgressMonitor {
+        /**
+         * @return {@code false} to cancel reading.
+         */
+        boolean onProgress(int recordCount, int totalRecordCount);
+    }
+
+    private final double[][] sourceValues;
+    private final double minValue;
+    private final double maxValue;
+
+    private L1bSourceValues(double[][] sourceValues, double minValue, double maxValue) {
+        this.sourceValues = sourceValues;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+    }
+
+    public double[][] getSourceValues() {
+        return sourceValues;
+    }
+
+    public double getMinValue() {
+        return minValue;
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    public static L1bSourceValues read(File sourceFile) throws IOException {
+        return read(sourceFile, (recordCount, totalRecordCount) -> true);
+    }
+
+    /**
+     * @return The source values or {@code null} if reading has been cancelled by the progress monitor.
+     */
+    public static L1bSourceValues read(File sourceFile, ProgressMonitor progressMonitor) throws IOException {
+        try (NetcdfFile netcdfFile = NetcdfFile.open(sourceFile.getPath())) {
+            Variable waveformCountsVar = netcdfFile.findVariable(WAVEFORM_COUNTS_VAR_NAME);
+            if (waveformCountsVar == null) {
+                throw new IOException(String.format("Can't find variable \"%s\"", WAVEFORM_COUNTS_VAR_NAME));
+            }
+            LoadPhaseEvent loadPhaseEvent = new LoadPhaseEvent();
+            loadPhaseEvent.begin();
+            Array waveformCounts = waveformCountsVar.read();
+            int[] waveformCountsShape = waveformCounts.getShape();
+            if (waveformCountsShape.length != 2) {
+                throw new IOException(String.format("Expected variable \"%s\" to be a 2D array, but is a %s",
+                        WAVEFORM_COUNTS_VAR_NAME, waveformCounts.toString()));
+            }
+            int recordCount = waveformCountsShape[0];
+            int waveformSize = waveformCountsShape[1];
+            loadPhaseEvent.commit("Read counts", sourceFile.getPath(), recordCount);
+
+            Variable waveformScalingsVar = netcdfFile.findVariable(WAVEFORM_SCALINGS_VAR_NAME);
+            if (waveformScalingsVar == null) {
+                throw new IOException(String.format("Can't find variable \"%s\"", WAVEFORM_SCALINGS_VAR_NAME));
+            }
+            loadPhaseEvent = new LoadPhaseEvent();
+            loadPhaseEvent.begin();
+            Array waveformScalings = waveformScalingsVar.read();
+            loadPhaseEvent.commit("Read scalings", sourceFile.getPath(), recordCount);
+            int[] waveformScalingsShape = waveformScalings.getShape();
+            if (waveformScalingsShape.length != 1) {
+                throw new IOException(String.format("Expected variable \"%s\" to be a 1D array, but is a %s",
+                        WAVEFORM_SCALINGS_VAR_NAME, waveformCounts.toString()));
+            }
+            if (waveformScalingsShape[0] != recordCount) {
+                throw new IOException(String.format("Expected variable \"%s\" to be of size %s, but is %s",
+                        WAVEFORM_SCALINGS_VAR_NAME, waveformCountsShape[1], recordCount));
+            }
+
+            loadPhaseEvent = new LoadPhaseEvent();
+            loadPhaseEvent.begin();
+            double[][] sourceValues = new double[recordCount][waveformSize];
+            double minSampleValue = Double.MAX_VALUE;
+            double maxSampleValue = -Double.MAX_VALUE;
+            for (int recordIndex = 0, k = 0; recordIndex < recordCount; recordIndex++) {
+                double waveformScaling = waveformScalings.getDouble(recordIndex) * 0.01;
+                for (int sampleIndex = 0; sampleIndex < waveformSize; sampleIndex++) {
+                    double waveformCount = waveformCounts.getDouble(k++) * 0.001;
+                    double sample = waveformScaling * waveformCount;
+                    sourceValues[recordIndex][sampleIndex] = sample;
+                    minSampleValue = Math.min(minSampleValue, sample);
+                    maxSampleValue = Math.max(maxSampleValue, sample);
+                }
+                if (!progressMonitor.onProgress(recordIndex + 1, recordCount)) {
+                    return null;
+                }
+            }
+            loadPhaseEvent.commit("Decode", sourceFile.getPath(), recordCount, minSampleValue, maxSampleValue);
+            return new L1bSourceValues(sourceValues, minSampleValue, maxSampleValue);
+        }
+    }
+}
@@ -25,11 +25,10 @@
 package dedopfx.source;
 
 import dedopfx.algo.AlgorithmInputs;
+import dedopfx.algo.RecordPyramid;
+import dedopfx.jfr.LoadPhaseEvent;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
-import ucar.ma2.Array;
-import ucar.nc2.NetcdfFile;
-import ucar.nc2.Variable;
 
 import java.io.File;
 import java.io.IOException;
@@ -45,75 +44,27 @@ public class LoadL1bNetCDFFileTask extends Task<Void> {
 
     @Override
     protected Void call() throws IOException {
-        try (NetcdfFile netcdfFile = NetcdfFile.open(sourceFile.getPath())) {
-            // List<Variable> variables = netcdfFile.getVariables();
-            // for (Variable variable : variables) {
-            //     System.out.println("variable = " + variable.getNameAndDimensions());
-            // }
-
-            String waveformCountsVarName = "i2q2_meas_ku_l1b_echo_sar_ku";
-            Variable waveformCountsVar = netcdfFile.findVariable(waveformCountsVarName);
-            if (waveformCountsVar == null) {
-                throw new IOException(String.format("Can't find variable \"%s\"", waveformCountsVarName));
-            }
-            Array waveformCounts = waveformCountsVar.read();
-            int[] waveformCountsShape = waveformCounts.getShape();
-            //Object obj = samples.copyToNDJavaArray();
-            if (waveformCountsShape.length != 2) {
-                throw new IOException(String.format("Expected variable \"%s\" to be a 2D array, but is a %s",
-                        waveformCountsVarName, waveformCounts.toString()));
-            }
-            int recordCount = waveformCountsShape[0];
-            int waveformSize = waveformCountsShape[1];
-
-            String waveformScalingsVarName = "scale_factor_ku_l1b_echo_sar_ku";
-            Variable waveformScalingsVar = netcdfFile.findVariable(waveformScalingsVarName);
-            if (waveformScalingsVar == null) {
-                throw new IOException(String.format("Can't find variable \"%s\"", waveformScalingsVarName));
-            }
-            Array waveformScalings = waveformScalingsVar.read();
-            int[] waveformScalingsShape = waveformScalings.getShape();
-            //Object obj = samples.copyToNDJavaArray();
-            if (waveformScalingsShape.length != 1) {
-                throw new IOException(String.format("Expected variable \"%s\" to be a 1D array, but is a %s",
-                        waveformScalingsVarName, waveformCounts.toString()));
-            }
-            if (waveformScalingsShape[0] != recordCount) {
-                throw new IOException(String.format("Expected variable \"%s\" to be of size %s, but is %s",
-                        waveformScalingsVarName, waveformCountsShape[1], recordCount));
-            }
-
-            double[][] sourceValues = new double[recordCount][waveformSize];
-            double minSampleValue = Double.MAX_VALUE;
-            double maxSampleValue = -Double.MAX_VALUE;
-            for (int recordIndex = 0, k = 0; recordIndex < recordCount; recordIndex++) {
-                double waveformScaling = waveformScalings.getDouble(recordIndex) * 0.01;
-                for (int sampleIndex = 0; sampleIndex < waveformSize; sampleIndex++) {
-                    double waveformCount = waveformCounts.getDouble(k++) * 0.001;
-                    //System.out.println("waveformScaling = " + waveformScaling);
-                    //System.out.println("waveformCount = " + waveformCount);
-                    double sample = waveformScaling * waveformCount;
-                    sourceValues[recordIndex][sampleIndex] = sample;
-                    minSampleValue = Math.min(minSampleValue, sample);
-                    maxSampleValue = Math.max(maxSampleValue, sample);
-                }
-                updateProgress(recordIndex + 1, recordCount);
-                if (isCancelled()) {
-                    return null;
-                }
-            }
-            final double minContainedSourceValue = minSampleValue;
-            final double maxContainedSourceValue = maxSampleValue;
-            System.out.println("minSampleValue = " + minSampleValue);
-            System.out.println("maxSampleValue = " + maxSampleValue);
-            if (!isCancelled()) {
-                Platform.runLater(() -> {
-                    algorithmInputs.setSourceFile(sourceFile);
-                    algorithmInputs.setSourceValues(sourceValues, minContainedSourceValue, maxContainedSourceValue);
-                });
-            }
+        final L1bSourceValues l1bSourceValues = L1bSourceValues.read(sourceFile, (recordCount, totalRecordCount) -> {
+            updateProgress(recordCount, totalRecordCount);
+            return !isCancelled();
+        });
+        if (l1bSourceValues == null || isCancelled()) {
             return null;
         }
+        final double[][] sourceValues = l1bSourceValues.getSourceValues();
+        final double minContainedSourceValue = l1bSourceValues.getMinValue();
+        final double maxContainedSourceValue = l1bSourceValues.getMaxValue();
+        final LoadPhaseEvent loadPhaseEvent = new LoadPhaseEvent();
+        loadPhaseEvent.begin();
+        final RecordPyramid recordPyramid = RecordPyramid.create(sourceValues);
+        loadPhaseEvent.commit("Build pyramid", sourceFile.getPath(), sourceValues.length);
+        if (!isCancelled()) {
+            Platform.runLater(() -> {
+                algorithmInputs.setSourceFile(sourceFile);
+                algorithmInputs.setRecordPyramid(recordPyramid);
+                algorithmInputs.setSourceValues(sourceValues, minContainedSourceValue, maxContainedSourceValue);
+            });
+        }
+        return null;
     }
 }
-
@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.store;
+
+import java.io.File;
+
+/**
+ * A write-only store that computes a 64 bit FNV-1a hash of all values put into it, in the order they are put.
+ * Keys can be ignored, e.g. settings that do not affect the rendered audio. Putting values does not allocate
+ * for primitives, strings, files and values whose {@code toString()} does not allocate.
+ */
+public class HashStore implements Store {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private final String[] ignoredKeys;
+    private long hash = OFFSET_BASIS;
+
+    public HashStore(String... ignoredKeys) {
+        this.ignoredKeys = ignoredKeys;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public void reset() {
+        hash = OFFSET_BASIS;
+    }
+
+    @Override
+    public File get(String key, File defaultValue) {
+        return defaultValue;
+    }
+
+    @Override
+    public void put(String key, File value) {
+        put(key, value != null ? value.getPath() : "");
+    }
+
+    @Override
+    public <T> T get(String key, T defaultValue, T[] values) {
+        return defaultValue;
+    }
+
+    @Override
+    public <T> void put(String key, T value) {
+        put(key, value != null ? value.toString() : "");
+    }
+
+    @Override
+    public boolean get(String key, boolean defaultValue) {
+        return defaultValue;
+    }
+
+    @Override
+    public void put(String key, boolean value) {
+        if (putKey(key)) {
+            update(value ? 1 : 0);
+        }
+    }
+
+    @Override
+    public int get(String key, int defaultValue) {
+        return defaultValue;
+    }
+
+    @Override
+    public void put(String key, int value) {
+        if (putKey(key)) {
+            update(value);
+        }
+    }
+
+    public void put(String key, long value) {
+        if (putKey(key)) {
+            update(value);
+        }
+    }
+
+    @Override
+    public double get(String key, double defaultValue) {
+        return defaultValue;
+    }
+
+    @Override
+    public void put(String key, double value) {
+        if (putKey(key)) {
+            update(Double.doubleToLongBits(value));
+        }
+    }
+
+    @Override
+    public String get(String key, String defaultValue) {
+        return defaultValue;
+    }
+
+    @Override
+    public void put(String key, String value) {
+        if (putKey(key)) {
+            update(value);
+        }
+    }
+
+    private boolean putKey(String key) {
+        for (String ignoredKey : ignoredKeys) {
+            if (ignoredKey.equals(key)) {
+                return false;
+            }
+        }
+        update(key);
+        return true;
+    }
+
+    private void update(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            update((byte) value.charAt(i));
+            update((byte) (value.charAt(i) >> 8));
+        }
+        update((byte) 0);
+    }
+
+    private void update(long value) {
+        for (int i = 0; i < 8; i++) {
+            update((byte) (value >> (8 * i)));
+        }
+    }
+
+    private void update(byte value) {
+        hash ^= value & 0xff;
+        hash *= PRIME;
+    }
+}
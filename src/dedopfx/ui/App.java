@@ -25,24 +25,28 @@
 package dedopfx.ui;
 
 import com.sun.javafx.geom.Rectangle;
-import dedopfx.algo.Algorithm;
 import dedopfx.algo.AlgorithmInputs;
+import dedopfx.algo.RecordMailbox;
+import dedopfx.algo.SynthesisEngineProvider;
+import dedopfx.algo.SynthesisEngines;
 import dedopfx.audio.*;
+import dedopfx.jfr.UiFrameEvent;
 import dedopfx.store.PreferencesStore;
 import dedopfx.store.PropertiesStore;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.beans.binding.DoubleBinding;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.Property;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.StringProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.concurrent.Service;
-import javafx.concurrent.Task;
 import javafx.concurrent.Worker;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -54,13 +58,13 @@ import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
 
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -78,12 +82,16 @@ public class App extends Application {
     public static final String DOC_FILE_EXTENSION = ".ddfx";
     public static final FileChooser.ExtensionFilter DOC_EXTENSION_FILTER = new FileChooser.ExtensionFilter("DeDop FX Files", "*" + DOC_FILE_EXTENSION);
     public static final int DEFAULT_INSET_SIZE = 10;
+    private static final long LATENCY_UPDATE_NANOS = 250_000_000L;
 
     private final Preferences preferences = Preferences.userNodeForPackage(App.class).node("v" + VERSION);
+    private final ObjectProperty<ColorMap> colorMap = new SimpleObjectProperty<>(ColorMap.YELLOW);
 
     private Controller controller;
     private Button playButton;
     private Button stopButton;
+    private ToggleButton pauseButton;
+    private ToggleButton recordButton;
     private Label fileLabel;
     private ObservableList<String> recentDocumentFileList;
     private ObservableList<String> recentSourceFileList;
@@ -92,15 +100,23 @@ public class App extends Application {
     private Stage primaryStage;
     private ProgressBar progressBar;
     private Label progressLabel;
+    private Label latencyLabel;
     private Menu openRecentDocumentFileMenu;
     private MenuItem saveMenuItem;
     private MenuItem newMenuItem;
     private MenuItem openMenuItem;
 
-    private byte[] imageData;
-    private WritableImage recordImage;
-    private ImageView recordImageView;
-    private ImageUpdateService imageUpdateService;
+    private RecordWaterfall recordWaterfall;
+    private RecordWaterfall spectrogram;
+    private double[] spectrogramRow;
+    private RecordOverview recordOverview;
+    private RecordMailbox recordMailbox;
+    private LevelMeterView levelMeterView;
+    private AnimationTimer frameTimer;
+    private int frameRecordIndex;
+    private int frameRecordCount;
+    private long latencyUpdateTime;
+    private long lastFrameTime;
 
     public static void main(String[] args) {
         launch(args);
@@ -114,22 +130,14 @@ public class App extends Application {
 
         this.primaryStage = primaryStage;
 
-        imageUpdateService = new ImageUpdateService();
-        imageUpdateService.onSucceededProperty().setValue(event -> {
-            PixelFormat<ByteBuffer> pixelFormat = PixelFormat.getByteRgbInstance();
-            recordImage.getPixelWriter().setPixels(0, 0,
-                    (int) recordImage.getWidth(), (int) recordImage.getHeight(), pixelFormat,
-                    imageData, 0, (int) recordImage.getWidth() * 3);
-        });
-
-        Algorithm.RecordObserver recordObserver = (recordIndex, recordCount, inputSamples) ->
-                Platform.runLater(() -> {
-                    updateProgress(recordIndex, recordCount);
-                    updateRecordImage(inputSamples);
-                });
-
-        controller = new Controller(recordObserver);
+        PlaybackTimeline playbackTimeline = new PlaybackTimeline();
+        // Records wait in the mailbox until they are audible
+        recordMailbox = new RecordMailbox(RecordMailbox.getCapacity(PlayAudioTask.MAX_QUEUED_TIME, AlgorithmInputs.MAX_VELOCITY),
+                                          playbackTimeline::getRenderedFramePosition);
+        controller = new Controller(recordMailbox, playbackTimeline);
         controller.getAlgorithmInputs().fromStore(new PreferencesStore(preferences.node("input")));
+        colorMap.set(getColorMap());
+        controller.renderCacheEnabledProperty().set(preferences.getBoolean("renderCacheEnabled", false));
 
         ChangeListener<File> sourceFileListener = (observable, oldValue, newValue) -> {
             if (oldValue != null) {
@@ -185,7 +193,24 @@ public class App extends Application {
         updateOpenRecentSourceFileMenu();
 
         playButton = new Button("Play");
-        playButton.setOnAction((event) -> controller.getPlayService().restart());
+        playButton.setOnAction((event) -> {
+            pauseButton.setSelected(false);
+            controller.getPlayService().restart();
+        });
+
+        pauseButton = new ToggleButton("Pause");
+        pauseButton.setTooltip(new Tooltip("Pause or resume playback at the current position"));
+        pauseButton.selectedProperty().addListener((observable, oldValue, newValue) -> controller.getTransport().setPaused(newValue));
+
+        recordButton = new ToggleButton("Rec");
+        recordButton.setTooltip(new Tooltip("Record the generated audio signal to a WAV file"));
+        recordButton.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue) {
+                startRecording();
+            } else {
+                controller.getWavRecorder().stop();
+            }
+        });
 
         stopButton = new Button("Stop");
         stopButton.setOnAction((event) -> controller.getPlayService().cancel());
@@ -208,34 +233,47 @@ public class App extends Application {
         progressBar = new ProgressBar();
         progressBar.setPrefWidth(200);
         progressLabel = new Label();
+        latencyLabel = new Label();
+        latencyLabel.setTooltip(new Tooltip("Time from rendering a sample until it is played"));
 
-        recordImageView = new ImageView();
-        recordImageView.setFitHeight(128);
+        recordWaterfall = new RecordWaterfall();
+        recordWaterfall.setMinHeight(RecordWaterfall.DEFAULT_ROW_COUNT);
 
-        StackPane recordImageViewPane = new StackPane();
-        recordImageViewPane.setAlignment(Pos.TOP_LEFT);
-        recordImageViewPane.getChildren().add(recordImageView);
+        spectrogram = new RecordWaterfall();
+        spectrogram.setMinHeight(RecordWaterfall.DEFAULT_ROW_COUNT);
+        Tooltip.install(spectrogram, new Tooltip("Spectrogram of the generated audio signal"));
+        spectrogramRow = new double[controller.getSpectrumAnalyzer().getBinCount()];
 
         HBox recordImageViewBox = new HBox();
         recordImageViewBox.setPadding(new Insets(DEFAULT_INSET_SIZE));
-        recordImageViewBox.getChildren().add(recordImageViewPane);
+        recordImageViewBox.setSpacing(DEFAULT_INSET_SIZE);
+        recordImageViewBox.getChildren().addAll(recordWaterfall, spectrogram);
+        HBox.setHgrow(recordWaterfall, Priority.ALWAYS);
+        HBox.setHgrow(spectrogram, Priority.ALWAYS);
+
+        recordOverview = new RecordOverview(controller.getAlgorithmInputs());
+        recordOverview.setPrefHeight(64);
+        recordOverview.setMinHeight(64);
+        recordOverview.setOnSeek(recordIndex -> controller.getTransport().seek(recordIndex));
 
-        // This is a hack to make the recordImageViewPane never larger than the recordImageViewBox
-        DoubleBinding halfWidth = recordImageViewBox.widthProperty().divide(2);
-        recordImageViewPane.minWidthProperty().bind(halfWidth);
-        recordImageViewPane.maxWidthProperty().bind(halfWidth);
-        recordImageViewPane.prefWidthProperty().bind(halfWidth);
-        recordImageView.fitWidthProperty().bind(recordImageViewBox.widthProperty().subtract(2 * DEFAULT_INSET_SIZE));
+        updateColorMap();
+        colorMap.addListener((observable, oldValue, newValue) -> updateColorMap());
+
+        VBox recordOverviewBox = new VBox(recordOverview);
+        recordOverviewBox.setPadding(new Insets(0, DEFAULT_INSET_SIZE, 0, DEFAULT_INSET_SIZE));
 
         HBox progressBox = new HBox();
         progressBox.setPadding(new Insets(DEFAULT_INSET_SIZE));
         progressBox.setSpacing(DEFAULT_INSET_SIZE / 2);
-        progressBox.getChildren().addAll(progressBar, progressLabel);
+        progressBox.getChildren().addAll(progressBar, progressLabel, latencyLabel);
+
+        levelMeterView = new LevelMeterView(controller.getLevelMeter());
 
         HBox buttonBox = new HBox();
         buttonBox.setPadding(new Insets(DEFAULT_INSET_SIZE));
         buttonBox.setSpacing(DEFAULT_INSET_SIZE);
-        buttonBox.getChildren().addAll(playButton, stopButton);
+        buttonBox.setAlignment(Pos.CENTER_RIGHT);
+        buttonBox.getChildren().addAll(levelMeterView, recordButton, playButton, pauseButton, stopButton);
 
         AnchorPane bottomAnchorPane = new AnchorPane();
         bottomAnchorPane.getChildren().addAll(recordImageViewBox, progressBox, buttonBox);
@@ -254,14 +292,14 @@ public class App extends Application {
         BorderPane borderPane0 = new BorderPane();
         borderPane0.setTop(hBox);
         borderPane0.setCenter(settingsTabPane);
-        // borderPane0.setBottom();
+        borderPane0.setBottom(recordOverviewBox);
 
         BorderPane borderPane = new BorderPane();
         borderPane.setTop(menuBar);
         borderPane.setCenter(borderPane0);
         borderPane.setBottom(bottomAnchorPane);
 
-        Scene scene = new Scene(borderPane, 480, 520);
+        Scene scene = new Scene(borderPane, 480, 600);
         updateEnabledState();
 
         updateTitle();
@@ -280,6 +318,15 @@ public class App extends Application {
             primaryStage.centerOnScreen();
         }
         primaryStage.show();
+
+        frameTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                updateFrame(now);
+            }
+        };
+        frameTimer.start();
+        controller.getSpectrumAnalyzer().start();
     }
 
     private Node createSourceMappingSettingsPane() {
@@ -364,12 +411,43 @@ public class App extends Application {
         GridPane settingsPane = createSettingsGridPane();
 
         int rowIndex = 0;
+        StringProperty engineProperty = controller.getAlgorithmInputs().engineProperty();
+        ChoiceBox<SynthesisEngineProvider> engineChoiceBox = new ChoiceBox<>(FXCollections.observableArrayList(SynthesisEngines.getProviders()));
+        engineChoiceBox.setConverter(new StringConverter<SynthesisEngineProvider>() {
+            @Override
+            public String toString(SynthesisEngineProvider provider) {
+                return provider != null ? String.format("%s (cost %.1f)", provider.getDisplayName(), provider.getCostPerBin()) : "";
+            }
+
+            @Override
+            public SynthesisEngineProvider fromString(String string) {
+                return null;
+            }
+        });
+        engineChoiceBox.setTooltip(new Tooltip("Synthesis engine and its relative cost per bin, can be changed while playing"));
+        engineChoiceBox.setValue(SynthesisEngines.getProvider(engineProperty.get()));
+        engineChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue != null) {
+                engineProperty.set(newValue.getId());
+            }
+        });
+        engineProperty.addListener((observable, oldValue, newValue) -> engineChoiceBox.setValue(SynthesisEngines.getProvider(newValue)));
+        settingsPane.add(new Label("Synthesis engine"), 0, rowIndex, 1, 1);
+        settingsPane.add(engineChoiceBox, 2, rowIndex, 1, 1);
+
+        rowIndex++;
         Property<Waveform> carrierWaveformProperty = controller.getAlgorithmInputs().carrierWaveformProperty();
         ChoiceBox<Waveform> carrierWaveformChoiceBox = new ChoiceBox<>(FXCollections.observableArrayList(Waveform.WAVEFORMS));
         carrierWaveformChoiceBox.valueProperty().bindBidirectional(carrierWaveformProperty);
         settingsPane.add(new Label("Carrier waveform"), 0, rowIndex, 1, 1);
         settingsPane.add(carrierWaveformChoiceBox, 2, rowIndex, 1, 1);
 
+        rowIndex++;
+        BooleanProperty bandLimitedProperty = controller.getAlgorithmInputs().bandLimitedProperty();
+        CheckBox bandLimitedCheckBox = new CheckBox("Band-limited carrier (less aliasing, mutes partials above Nyquist)");
+        bandLimitedCheckBox.selectedProperty().bindBidirectional(bandLimitedProperty);
+        settingsPane.add(bandLimitedCheckBox, 0, rowIndex, 3, 1);
+
         rowIndex++;
         Property<Harmonics> harmonicsModeProperty = controller.getAlgorithmInputs().harmonicsModeProperty();
         ChoiceBox<Harmonics> harmonicsModeBox = new ChoiceBox<>(FXCollections.observableArrayList(Harmonics.values()));
@@ -454,7 +532,7 @@ public class App extends Application {
         IntegerProperty velocityProperty = controller.getAlgorithmInputs().velocityProperty();
         InputFieldWithSlider velocity = new InputFieldWithSliderInteger("Velocity",
                 1,
-                32,
+                AlgorithmInputs.MAX_VELOCITY,
                 velocityProperty);
         velocity.addToGrid(settingsPane, ++rowIndex);
 
@@ -465,6 +543,38 @@ public class App extends Application {
                 gainProperty, "%.3f");
         gain.addToGrid(settingsPane, ++rowIndex);
 
+        ++rowIndex;
+        BooleanProperty lowLatencyProperty = controller.getAlgorithmInputs().lowLatencyProperty();
+        CheckBox lowLatencyCheckBox = new CheckBox("Low latency (small buffers, shrunk while playback is stable)");
+        lowLatencyCheckBox.selectedProperty().bindBidirectional(lowLatencyProperty);
+        lowLatencyProperty.addListener((observable, oldValue, newValue) -> {
+            if (controller.getPlayService().isRunning()) {
+                // The block size and the line buffer are set up when a session starts
+                controller.getPlayService().restartAfterCurrent();
+            }
+        });
+        settingsPane.add(lowLatencyCheckBox, 0, rowIndex, 3, 1);
+
+        ++rowIndex;
+        CheckBox renderCacheCheckBox = new CheckBox("Cache rendered audio on disk");
+        renderCacheCheckBox.setTooltip(new Tooltip("Replays unchanged settings from the cache instead of rendering them again "
+                + "(256 MB by default), takes effect when playback is started"));
+        renderCacheCheckBox.selectedProperty().bindBidirectional(controller.renderCacheEnabledProperty());
+        settingsPane.add(renderCacheCheckBox, 0, rowIndex, 3, 1);
+
+        ++rowIndex;
+        CheckBox loopCheckBox = new CheckBox("Loop selected records");
+        loopCheckBox.setSelected(controller.getTransport().isLooping());
+        loopCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> controller.getTransport().setLooping(newValue));
+        settingsPane.add(loopCheckBox, 0, rowIndex, 3, 1);
+
+        ++rowIndex;
+        ChoiceBox<ColorMap> colorMapChoiceBox = new ChoiceBox<>(FXCollections.observableArrayList(ColorMap.values()));
+        colorMapChoiceBox.valueProperty().bindBidirectional(colorMap);
+        colorMapChoiceBox.setTooltip(new Tooltip("Colour map used by the record views and the spectrogram"));
+        settingsPane.add(new Label("Colour map"), 0, rowIndex, 1, 1);
+        settingsPane.add(colorMapChoiceBox, 2, rowIndex, 1, 1);
+
         return settingsPane;
     }
 
@@ -484,18 +594,93 @@ public class App extends Application {
         return gridPane;
     }
 
-    private void updateRecordImage(double[] inputSamples) {
-        if (imageUpdateService.getState() == Worker.State.READY || imageUpdateService.getState() == Worker.State.SUCCEEDED) {
-            imageUpdateService.reset();
-            imageUpdateService.setInputSamples(inputSamples);
-            imageUpdateService.start();
+    private void updateFrame(long now) {
+        final UiFrameEvent uiFrameEvent = new UiFrameEvent();
+        uiFrameEvent.begin();
+        // Only show records that have become audible, rendered ones are still buffered by the audio line
+        final long playedFramePosition = controller.getPlaybackTimeline().getPlayedFramePosition();
+        final int recordCount = recordMailbox.drainTo(this::updateRecord, playedFramePosition);
+        if (recordCount > 0) {
+            updateProgress(frameRecordIndex, frameRecordCount);
+        }
+        controller.getSpectrumAnalyzer().readFrames(this::updateSpectrogram);
+        levelMeterView.update(now);
+        if (recordButton.isSelected() && !controller.getWavRecorder().isRecording()) {
+            // The recorder has stopped because of a write error
+            recordButton.setSelected(false);
+            final IOException error = controller.getWavRecorder().getError();
+            if (error != null) {
+                Platform.runLater(() -> ExceptionDialog.showError("Failed to write the recording", error));
+            }
+        }
+        if (controller.getTransport().isPaused() != pauseButton.isSelected()) {
+            // The transport pauses by itself at the end of the selected records if looping is off
+            pauseButton.setSelected(controller.getTransport().isPaused());
+        }
+        if (now - latencyUpdateTime > LATENCY_UPDATE_NANOS) {
+            latencyUpdateTime = now;
+            updateLatency();
+        }
+        uiFrameEvent.end();
+        if (uiFrameEvent.shouldCommit()) {
+            uiFrameEvent.frameInterval = lastFrameTime != 0 ? now - lastFrameTime : 0;
+            uiFrameEvent.recordCount = recordCount;
+            uiFrameEvent.commit();
+        }
+        lastFrameTime = now;
+    }
+
+    private void startRecording() {
+        String initialDirectoryPath = preferences.get("lastRecordingDirectory", System.getProperty("user.home"));
+        FileChooser fileChooser = createRecordingFileChooser(initialDirectoryPath);
+        File file = fileChooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            recordButton.setSelected(false);
+            return;
+        }
+        if (!file.getName().toLowerCase().endsWith(".wav")) {
+            file = new File(file.getParentFile(), file.getName() + ".wav");
+        }
+        preferences.put("lastRecordingDirectory", file.getParent() != null ? file.getParent() : "");
+        try {
+            controller.getWavRecorder().start(file);
+        } catch (IOException e) {
+            recordButton.setSelected(false);
+            ExceptionDialog.showError(String.format("Failed to record to file '%s'", file), e);
+        }
+    }
+
+    private void updateLatency() {
+        final PlaybackTimeline playbackTimeline = controller.getPlaybackTimeline();
+        if (!playbackTimeline.isPlaying()) {
+            latencyLabel.setText("");
+            return;
+        }
+        final double latency = 1000. * playbackTimeline.getLatencyFrameCount() / PlayAudioTask.SAMPLE_RATE;
+        final long underrunCount = playbackTimeline.getUnderrunCount();
+        latencyLabel.setText(underrunCount > 0
+                ? String.format("Latency: %.0f ms, %d underruns", latency, underrunCount)
+                : String.format("Latency: %.0f ms", latency));
+    }
+
+    private void updateSpectrogram(float[] magnitudes) {
+        for (int i = 0; i < magnitudes.length; i++) {
+            spectrogramRow[i] = magnitudes[i];
         }
+        spectrogram.addRow(spectrogramRow);
+    }
+
+    private void updateRecord(int recordIndex, int recordCount, double[] inputSamples) {
+        recordWaterfall.addRow(inputSamples);
+        frameRecordIndex = recordIndex;
+        frameRecordCount = recordCount;
     }
 
     private void updateProgress(int recordIndex, int recordCount) {
         double progress = recordIndex / (double) recordCount;
         progressBar.setProgress(progress);
         progressLabel.setText(String.format("%d of %d (%.0f%%)", recordIndex, recordCount, progress * 100.));
+        recordOverview.setCurrentRecordIndex(recordIndex);
     }
 
     private void updateTitle() {
@@ -683,6 +868,11 @@ public class App extends Application {
 
     @Override
     public void stop() {
+        frameTimer.stop();
+        controller.getSpectrumAnalyzer().stop();
+        controller.getWavRecorder().stop();
+        controller.getWavRecorder().join();
+
         putWindowRectangle(new Rectangle(
                 (int) this.primaryStage.getX(),
                 (int) this.primaryStage.getY(),
@@ -699,6 +889,8 @@ public class App extends Application {
 
         controller.getAlgorithmInputs().setSourceFile(null);
         controller.getAlgorithmInputs().toStore(new PreferencesStore(preferences.node("input")));
+        preferences.put("colorMap", colorMap.get().name());
+        preferences.putBoolean("renderCacheEnabled", controller.renderCacheEnabledProperty().get());
 
         try {
             preferences.sync();
@@ -799,6 +991,20 @@ public class App extends Application {
         }
     }
 
+    private void updateColorMap() {
+        recordWaterfall.setColorMap(colorMap.get());
+        spectrogram.setColorMap(colorMap.get());
+        recordOverview.setColorMap(colorMap.get());
+    }
+
+    private ColorMap getColorMap() {
+        try {
+            return ColorMap.valueOf(preferences.get("colorMap", ColorMap.YELLOW.name()));
+        } catch (IllegalArgumentException e) {
+            return ColorMap.YELLOW;
+        }
+    }
+
     private Rectangle getWindowRectangle() {
         int invalid = Integer.MAX_VALUE;
         int windowX = preferences.getInt("windowX", invalid);
@@ -859,6 +1065,7 @@ public class App extends Application {
         progressBar.disableProperty().setValue(!isPlaying);
         playButton.disableProperty().setValue(!canPlay);
         stopButton.disableProperty().setValue(!isPlaying);
+        pauseButton.disableProperty().setValue(!isPlaying);
 
         if (canPlay) {
             playButton.requestFocus();
@@ -887,6 +1094,14 @@ public class App extends Application {
         return fileChooser;
     }
 
+    private FileChooser createRecordingFileChooser(String initialDirectoryPath) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Record To");
+        fileChooser.setInitialDirectory(new File(initialDirectoryPath));
+        fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("WAV Files", "*.wav"));
+        return fileChooser;
+    }
+
     private FileChooser createLoadSourceFileChooser(String initialDirectoryPath) {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Load Source File");
@@ -897,75 +1112,4 @@ public class App extends Application {
         );
         return fileChooser;
     }
-
-    private class ImageUpdateService extends Service<Void> {
-        private double[] inputSamples;
-
-        public ImageUpdateService() {
-        }
-
-        public void setInputSamples(double[] inputSamples) {
-            this.inputSamples = inputSamples;
-        }
-
-        @Override
-        protected Task<Void> createTask() {
-            return new Task<Void>() {
-                @Override
-                protected Void call() throws Exception {
-                    int imageWidth = inputSamples.length;
-                    int imageHeight = 128;
-                    if (imageData == null || imageData.length != imageWidth * imageHeight * 3) {
-                        recordImage = new WritableImage(imageWidth, imageHeight);
-                        imageData = new byte[imageWidth * imageHeight * 3];
-                        // System.out.println("imageWidth = " + imageWidth);
-                        recordImageView.setImage(recordImage);
-                        // System.out.println("recordImageView = " + recordImageView.getFitWidth());
-                    }
-
-                    int decay = 2;
-                    for (int k = 0; k < imageWidth * imageHeight * 3; k++) {
-                        int v = imageData[k] & 0xff;
-                        if (v - decay >= 0) {
-                            imageData[k] = (byte) (v - decay);
-                        } else {
-                            imageData[k] = 0;
-                        }
-                    }
-
-                    for (int y = 1; y < imageHeight; y++) {
-                        final int j1 = y * imageWidth;
-                        for (int x = 0; x < imageWidth; x++) {
-                            final int i1 = 3 * (j1 + x);
-                            final int i0 = i1 - 3 * imageWidth;
-                            imageData[i0] = imageData[i1];
-                            imageData[i0 + 1] = imageData[i1 + 1];
-                            imageData[i0 + 2] = imageData[i1 + 1];
-                        }
-                    }
-
-                    for (int x = 0; x < inputSamples.length; x++) {
-                        double inputSample = inputSamples[x];
-                        int h = (int) (imageHeight * inputSample);
-                        if (h < 0) {
-                            h = 0;
-                        }
-                        if (h > imageHeight - 1) {
-                            h = imageHeight - 1;
-                        }
-                        for (int y = imageHeight - h; y < imageHeight; y++) {
-                            int k = (y * imageWidth + x) * 3;
-                            imageData[k] = (byte) 255;
-                            imageData[k + 1] = (byte) 255;
-                            imageData[k + 2] = 0;
-                        }
-                    }
-
-                    return null;
-                }
-            };
-        }
-    }
 }
-
-
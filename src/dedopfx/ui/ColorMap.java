@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.ui;
+
+/**
+ * Colour maps for the record and spectrum views. Each map is a precomputed 256-entry lookup table of
+ * opaque colours in {@code IntArgbPre} layout, which is what JavaFX uploads without conversion.
+ * <p>
+ * Every map is given by polynomial coefficients per channel, viridis, inferno and magma are 6th degree
+ * approximations of the matplotlib maps.
+ */
+enum ColorMap {
+    YELLOW("Yellow", new double[][]{{0., 0., 0.}, {1., 1., 0.}}),
+    GRAY("Gray", new double[][]{{0., 0., 0.}, {1., 1., 1.}}),
+    VIRIDIS("Viridis", new double[][]{
+            {0.2777273272234177, 0.005407344544966578, 0.3340998053353061},
+            {0.1050930431085774, 1.404613529898575, 1.384590162594685},
+            {-0.3308618287255563, 0.214847559468213, 0.09509516302823659},
+            {-4.634230498983486, -5.799100973351585, -19.33244095627987},
+            {6.228269936347081, 14.17993336680509, 56.69055260068105},
+            {4.776384997670288, -13.74514537774601, -65.35303263337234},
+            {-5.435455855934631, 4.645852612178535, 26.3124352495832}}),
+    INFERNO("Inferno", new double[][]{
+            {0.0002189403691192265, 0.001651004631001012, -0.01948089843709184},
+            {0.1065134194856116, 0.5639564367884091, 3.932712388889277},
+            {11.60249308247187, -3.972853965665698, -15.9423941062914},
+            {-41.70399613139459, 17.43639888205313, 44.35414519872813},
+            {77.162935699427, -33.40235894210092, -81.80730925738993},
+            {-71.31942824499214, 32.62606426397723, 73.20951985803202},
+            {25.13112622477341, -12.24266895238567, -23.07032500287172}}),
+    MAGMA("Magma", new double[][]{
+            {-0.002136485053939582, -0.000749655052795221, -0.005386127855323933},
+            {0.2516605407371642, 0.6775232436837668, 2.494026599312351},
+            {8.353717279216625, -3.577719514958484, 0.3144679030132573},
+            {-27.66873308576866, 14.26473078096533, -13.64921318813922},
+            {52.17613981234068, -27.94360607168351, 12.94416944238394},
+            {-50.76852536473588, 29.04658282127291, 4.23415299384598},
+            {18.65570506591883, -11.48977351997711, -5.601961508734096}});
+
+    static final int SIZE = 256;
+
+    private final String label;
+    private final int[] colors;
+
+    ColorMap(String label, double[][] coefficients) {
+        this.label = label;
+        this.colors = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            final double t = i / (SIZE - 1.);
+            colors[i] = 0xff000000
+                    | (toByte(evaluate(coefficients, 0, t)) << 16)
+                    | (toByte(evaluate(coefficients, 1, t)) << 8)
+                    | toByte(evaluate(coefficients, 2, t));
+        }
+    }
+
+    /**
+     * @return The colour for the given index in the range 0 to 255.
+     */
+    int getColor(int index) {
+        return colors[index];
+    }
+
+    /**
+     * @return The index of the colour for the given value, values are clamped to the range 0 to 1.
+     */
+    static int toIndex(double value) {
+        if (value <= 0.) {
+            return 0;
+        }
+        if (value >= 1.) {
+            return SIZE - 1;
+        }
+        return (int) (value * (SIZE - 1) + 0.5);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    private static double evaluate(double[][] coefficients, int channel, double t) {
+        double value = 0.;
+        for (int i = coefficients.length - 1; i >= 0; i--) {
+            value = value * t + coefficients[i][channel];
+        }
+        return value;
+    }
+
+    private static int toByte(double value) {
+        return (int) Math.round(255 * Math.max(0., Math.min(1., value)));
+    }
+}
@@ -26,14 +26,28 @@ package dedopfx.ui;
 
 import dedopfx.algo.Algorithm;
 import dedopfx.algo.AlgorithmInputs;
+import dedopfx.algo.RenderCache;
+import dedopfx.algo.SwitchingEngine;
+import dedopfx.algo.SynthesisEngine;
+import dedopfx.algo.Transport;
+import dedopfx.audio.LevelMeter;
 import dedopfx.audio.PlayAudioTask;
+import dedopfx.audio.PlaybackTimeline;
+import dedopfx.audio.SpectrumAnalyzer;
+import dedopfx.audio.WavRecorder;
+import dedopfx.jmx.EngineMonitor;
 import dedopfx.source.LoadL1bNetCDFFileTask;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.Property;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 class Controller {
     private final LoadSourceFileService loadSourceFileService = new LoadSourceFileService();
@@ -41,11 +55,22 @@ class Controller {
 
     private final Property<File> documentFile = new SimpleObjectProperty<>(null);
     private final AlgorithmInputs algorithmInputs;
-    private final Algorithm algorithm;
-
-    public Controller(Algorithm.RecordObserver recordObserver) {
+    private final SynthesisEngine algorithm;
+    private final LevelMeter levelMeter = new LevelMeter();
+    private final SpectrumAnalyzer spectrumAnalyzer = new SpectrumAnalyzer();
+    private final PlaybackTimeline playbackTimeline;
+    private final Transport transport;
+    private final WavRecorder wavRecorder = new WavRecorder(PlayAudioTask.SAMPLE_RATE);
+    private final BooleanProperty renderCacheEnabled = new SimpleBooleanProperty(false);
+    // Created when first enabled, so the cache thread and directory only exist if the user opted in
+    private RenderCache renderCache;
+
+    public Controller(Algorithm.RecordObserver recordObserver, PlaybackTimeline playbackTimeline) {
+        this.playbackTimeline = playbackTimeline;
         algorithmInputs = new AlgorithmInputs();
-        algorithm = new Algorithm(algorithmInputs, recordObserver);
+        algorithm = new SwitchingEngine(algorithmInputs, recordObserver);
+        transport = new Transport(algorithmInputs);
+        new EngineMonitor(algorithm, playbackTimeline).register();
     }
 
     public File getDocumentFile() {
@@ -72,6 +97,43 @@ class Controller {
         return algorithmInputs;
     }
 
+    public LevelMeter getLevelMeter() {
+        return levelMeter;
+    }
+
+    public SpectrumAnalyzer getSpectrumAnalyzer() {
+        return spectrumAnalyzer;
+    }
+
+    public PlaybackTimeline getPlaybackTimeline() {
+        return playbackTimeline;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public WavRecorder getWavRecorder() {
+        return wavRecorder;
+    }
+
+    /**
+     * Whether rendered audio is cached on disk, takes effect when the next playback session starts.
+     */
+    public BooleanProperty renderCacheEnabledProperty() {
+        return renderCacheEnabled;
+    }
+
+    private RenderCache getRenderCache() {
+        if (!renderCacheEnabled.get()) {
+            return null;
+        }
+        if (renderCache == null) {
+            renderCache = RenderCache.createDefault();
+        }
+        return renderCache;
+    }
+
     public class LoadSourceFileService extends Service<Void> {
 
         private File sourceFile;
@@ -92,9 +154,52 @@ class Controller {
 
     public class PlayService extends Service<Void> {
 
+        private final ExecutorService executor;
+        // Only accessed on the JavaFX application thread
+        private boolean restartPending;
+
+        PlayService() {
+            // Sessions share the transport, the render cache and the timeline, so a new session must only start
+            // after the previous one has drained and closed its line
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "Audio");
+                thread.setDaemon(true);
+                return thread;
+            });
+            setExecutor(executor);
+        }
+
+        /**
+         * Cancels the running session and starts a new one once the cancelled session has drained and closed
+         * its line, e.g. to apply settings that are only read when a session starts. Stopping the service in
+         * the meantime also drops the pending restart.
+         */
+        void restartAfterCurrent() {
+            if (!isRunning()) {
+                restart();
+                return;
+            }
+            cancel();
+            restartPending = true;
+            // Queued behind the cancelled session on the audio thread
+            executor.execute(() -> Platform.runLater(() -> {
+                if (restartPending) {
+                    restartPending = false;
+                    restart();
+                }
+            }));
+        }
+
+        @Override
+        public boolean cancel() {
+            restartPending = false;
+            return super.cancel();
+        }
+
         @Override
         protected Task<Void> createTask() {
-            return new PlayAudioTask(algorithm);
+            return new PlayAudioTask(algorithm, levelMeter, spectrumAnalyzer, playbackTimeline, transport, wavRecorder, getRenderCache(),
+                    algorithmInputs.isLowLatency());
         }
 
     }
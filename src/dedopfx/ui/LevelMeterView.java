@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.ui;
+
+import dedopfx.audio.LevelMeter;
+import javafx.geometry.Pos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+
+/**
+ * Shows the output level (RMS bar, peak line and peak hold marker) in dBFS and the number of clipped samples.
+ * Clicking the clip indicator resets the clip counts.
+ */
+class LevelMeterView extends HBox {
+
+    private static final double MIN_DB = -60.;
+    private static final long PEAK_HOLD_NANOS = 1_500_000_000L;
+    private static final double PEAK_FALL_DB_PER_SECOND = 20.;
+
+    private final LevelMeter levelMeter;
+    private final Canvas canvas;
+    private final Label clipLabel;
+
+    private double peakDb = MIN_DB;
+    private double holdPeakDb = MIN_DB;
+    private long holdPeakTime;
+    private long lastTime;
+    private long lastClipCount = -1;
+
+    LevelMeterView(LevelMeter levelMeter) {
+        this.levelMeter = levelMeter;
+        this.canvas = new Canvas(120, 12);
+        this.clipLabel = new Label();
+        clipLabel.setMinWidth(60);
+        clipLabel.setTooltip(new Tooltip("Number of clipped samples, click to reset"));
+        clipLabel.setOnMouseClicked(event -> {
+            levelMeter.resetClipCounts();
+            lastClipCount = -1;
+        });
+        setAlignment(Pos.CENTER_LEFT);
+        setSpacing(4);
+        getChildren().addAll(canvas, clipLabel);
+    }
+
+    void update(long now) {
+        final double elapsedSeconds = lastTime != 0 ? (now - lastTime) * 1e-9 : 0.;
+        lastTime = now;
+
+        final double rmsDb = toDb(levelMeter.readRms());
+        final double newPeakDb = toDb(levelMeter.readPeak());
+        peakDb = Math.max(newPeakDb, peakDb - PEAK_FALL_DB_PER_SECOND * elapsedSeconds);
+        if (newPeakDb >= holdPeakDb) {
+            holdPeakDb = newPeakDb;
+            holdPeakTime = now;
+        } else if (now - holdPeakTime > PEAK_HOLD_NANOS) {
+            holdPeakDb = Math.max(peakDb, holdPeakDb - PEAK_FALL_DB_PER_SECOND * elapsedSeconds);
+        }
+
+        draw(rmsDb);
+
+        final long clipCount = levelMeter.getTopClipCount() + levelMeter.getBottomClipCount();
+        if (clipCount != lastClipCount) {
+            lastClipCount = clipCount;
+            clipLabel.setText(clipCount > 0 ? String.format("Clip: %d", clipCount) : "No clip");
+            clipLabel.setTextFill(clipCount > 0 ? Color.RED : Color.GRAY);
+        }
+    }
+
+    private void draw(double rmsDb) {
+        final GraphicsContext gc = canvas.getGraphicsContext2D();
+        final double width = canvas.getWidth();
+        final double height = canvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, width, height);
+
+        gc.setFill(holdPeakDb >= 0. ? Color.RED : Color.LIMEGREEN);
+        gc.fillRect(0, 2, dbToX(rmsDb, width), height - 4);
+
+        gc.setFill(Color.YELLOW);
+        gc.fillRect(Math.max(0, dbToX(peakDb, width) - 1), 0, 1, height);
+
+        gc.setFill(holdPeakDb >= 0. ? Color.RED : Color.WHITE);
+        gc.fillRect(Math.max(0, dbToX(holdPeakDb, width) - 2), 0, 2, height);
+    }
+
+    private static double toDb(double level) {
+        return level > 0. ? Math.max(MIN_DB, 20. * Math.log10(level)) : MIN_DB;
+    }
+
+    private static double dbToX(double db, double width) {
+        return width * Math.min(1., (db - MIN_DB) / -MIN_DB);
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.ui;
+
+import dedopfx.algo.AlgorithmInputs;
+import dedopfx.algo.RecordPyramid;
+import javafx.beans.value.ChangeListener;
+import javafx.concurrent.Task;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+
+/**
+ * Shows all loaded records as an image (records along x, bins along y) together with the currently played
+ * record and the selected record range. Dragging a region sets the minimum and maximum record index,
+ * clicking seeks to the clicked record.
+ * <p>
+ * The image is rendered tile by tile in background threads from the {@link RecordPyramid} level that
+ * matches the current width. Tiles are kept until the view is resized or the source value range or the
+ * colour map changes.
+ */
+class RecordOverview extends Region {
+
+    private static final int TILE_WIDTH = 64;
+    private static final double MIN_DRAG_DISTANCE = 3;
+
+    private static final ExecutorService TILE_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+            runnable -> {
+                Thread thread = new Thread(runnable, "RecordOverview-Tile");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    private final AlgorithmInputs algorithmInputs;
+    private final Pane tilePane;
+    private final Rectangle selectionRectangle;
+    private final Line cursorLine;
+
+    private ColorMap colorMap = ColorMap.YELLOW;
+    private volatile int generation;
+    private int renderedWidth;
+    private int renderedHeight;
+    private int currentRecordIndex = -1;
+    private double dragStartX = -1;
+    private IntConsumer onSeek;
+
+    RecordOverview(AlgorithmInputs algorithmInputs) {
+        this.algorithmInputs = algorithmInputs;
+
+        tilePane = new Pane();
+        tilePane.setStyle("-fx-background-color: black;");
+
+        selectionRectangle = new Rectangle();
+        selectionRectangle.setFill(Color.color(1.0, 1.0, 1.0, 0.15));
+        selectionRectangle.setStroke(Color.color(1.0, 1.0, 1.0, 0.6));
+        selectionRectangle.setMouseTransparent(true);
+
+        cursorLine = new Line();
+        cursorLine.setStroke(Color.RED);
+        cursorLine.setMouseTransparent(true);
+        cursorLine.setVisible(false);
+
+        getChildren().addAll(tilePane, selectionRectangle, cursorLine);
+
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(widthProperty());
+        clip.heightProperty().bind(heightProperty());
+        setClip(clip);
+
+        ChangeListener<Object> tileInvalidator = (observable, oldValue, newValue) -> invalidateTiles();
+        algorithmInputs.recordPyramidProperty().addListener(tileInvalidator);
+        algorithmInputs.minSourceValueProperty().addListener(tileInvalidator);
+        algorithmInputs.maxSourceValueProperty().addListener(tileInvalidator);
+
+        ChangeListener<Object> overlayUpdater = (observable, oldValue, newValue) -> updateOverlays();
+        algorithmInputs.minRecordIndexProperty().addListener(overlayUpdater);
+        algorithmInputs.maxRecordIndexProperty().addListener(overlayUpdater);
+
+        addEventHandler(MouseEvent.MOUSE_PRESSED, this::onMousePressed);
+        addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onMouseDragged);
+        addEventHandler(MouseEvent.MOUSE_RELEASED, this::onMouseReleased);
+    }
+
+    void setCurrentRecordIndex(int currentRecordIndex) {
+        this.currentRecordIndex = currentRecordIndex;
+        updateCursor();
+    }
+
+    void setColorMap(ColorMap colorMap) {
+        if (this.colorMap != colorMap) {
+            this.colorMap = colorMap;
+            invalidateTiles();
+        }
+    }
+
+    void setOnSeek(IntConsumer onSeek) {
+        this.onSeek = onSeek;
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return 0;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        int width = (int) Math.round(getWidth());
+        int height = (int) Math.round(getHeight());
+        tilePane.resize(width, height);
+        if (width != renderedWidth || height != renderedHeight) {
+            renderedWidth = width;
+            renderedHeight = height;
+            invalidateTiles();
+        }
+        updateOverlays();
+    }
+
+    private void invalidateTiles() {
+        generation++;
+        tilePane.getChildren().clear();
+
+        final RecordPyramid recordPyramid = algorithmInputs.getRecordPyramid();
+        final int width = renderedWidth;
+        final int height = renderedHeight;
+        if (recordPyramid == null || recordPyramid.getRecordCount(0) == 0 || width <= 0 || height <= 0) {
+            updateOverlays();
+            return;
+        }
+
+        final int tileGeneration = generation;
+        final double minSourceValue = algorithmInputs.getMinSourceValue();
+        final double maxSourceValue = algorithmInputs.getMaxSourceValue();
+        final ColorMap tileColorMap = colorMap;
+        for (int tileX = 0; tileX < width; tileX += TILE_WIDTH) {
+            final int x0 = tileX;
+            final int tileWidth = Math.min(TILE_WIDTH, width - tileX);
+            ImageView tileView = new ImageView();
+            tileView.setLayoutX(x0);
+            tilePane.getChildren().add(tileView);
+            Task<WritableImage> tileTask = new Task<WritableImage>() {
+                @Override
+                protected WritableImage call() throws Exception {
+                    if (tileGeneration != generation) {
+                        return null;
+                    }
+                    return renderTile(recordPyramid, x0, tileWidth, width, height,
+                            minSourceValue, maxSourceValue, tileColorMap);
+                }
+            };
+            tileTask.setOnSucceeded(event -> {
+                if (tileGeneration == generation) {
+                    tileView.setImage(tileTask.getValue());
+                }
+            });
+            TILE_EXECUTOR.execute(tileTask);
+        }
+        updateOverlays();
+    }
+
+    private static WritableImage renderTile(RecordPyramid recordPyramid,
+                                            int x0, int tileWidth, int width, int height,
+                                            double minSourceValue, double maxSourceValue,
+                                            ColorMap colorMap) {
+        final int recordCount = recordPyramid.getRecordCount(0);
+        final int binCount = recordPyramid.getBinCount();
+        final int level = recordPyramid.getLevel(recordCount / (double) width);
+        final int[] tileData = new int[tileWidth * height];
+        for (int x = 0; x < tileWidth; x++) {
+            final int recordIndex1 = (int) (((long) (x0 + x) * recordCount) / width);
+            final int recordIndex2 = Math.max(recordIndex1 + 1, (int) (((long) (x0 + x + 1) * recordCount) / width));
+            final int levelRecordIndex1 = recordPyramid.getRecordIndex(level, recordIndex1);
+            final int levelRecordIndex2 = recordPyramid.getRecordIndex(level, recordIndex2 - 1);
+            for (int y = 0; y < height; y++) {
+                final int binIndex1 = (y * binCount) / height;
+                final int binIndex2 = Math.max(binIndex1 + 1, ((y + 1) * binCount) / height);
+                double value = -Double.MAX_VALUE;
+                for (int i = levelRecordIndex1; i <= levelRecordIndex2; i++) {
+                    for (int j = binIndex1; j < binIndex2; j++) {
+                        value = Math.max(value, recordPyramid.getMaxValue(level, i, j));
+                    }
+                }
+                final double normalizedValue = (value - minSourceValue) / (maxSourceValue - minSourceValue);
+                tileData[y * tileWidth + x] = colorMap.getColor(ColorMap.toIndex(normalizedValue));
+            }
+        }
+        WritableImage tileImage = new WritableImage(tileWidth, height);
+        tileImage.getPixelWriter().setPixels(0, 0, tileWidth, height, PixelFormat.getIntArgbPreInstance(),
+                tileData, 0, tileWidth);
+        return tileImage;
+    }
+
+    private void updateOverlays() {
+        updateSelection();
+        updateCursor();
+    }
+
+    private void updateSelection() {
+        final int recordCount = getRecordCount();
+        if (recordCount <= 0 || dragStartX >= 0) {
+            selectionRectangle.setVisible(dragStartX >= 0);
+            return;
+        }
+        int minRecordIndex = Math.max(0, Math.min(algorithmInputs.getMinRecordIndex(), recordCount - 1));
+        int maxRecordIndex = Math.max(0, Math.min(algorithmInputs.getMaxRecordIndex(), recordCount - 1));
+        if (minRecordIndex > maxRecordIndex) {
+            int t = minRecordIndex;
+            minRecordIndex = maxRecordIndex;
+            maxRecordIndex = t;
+        }
+        final double x1 = recordIndexToX(minRecordIndex);
+        final double x2 = recordIndexToX(maxRecordIndex + 1);
+        selectionRectangle.setX(x1);
+        selectionRectangle.setY(0);
+        selectionRectangle.setWidth(x2 - x1);
+        selectionRectangle.setHeight(getHeight());
+        selectionRectangle.setVisible(minRecordIndex > 0 || maxRecordIndex < recordCount - 1);
+    }
+
+    private void updateCursor() {
+        final int recordCount = getRecordCount();
+        if (recordCount <= 0 || currentRecordIndex < 0 || currentRecordIndex >= recordCount) {
+            cursorLine.setVisible(false);
+            return;
+        }
+        final double x = Math.floor(recordIndexToX(currentRecordIndex + 0.5)) + 0.5;
+        cursorLine.setStartX(x);
+        cursorLine.setStartY(0);
+        cursorLine.setEndX(x);
+        cursorLine.setEndY(getHeight());
+        cursorLine.setVisible(true);
+    }
+
+    private void onMousePressed(MouseEvent event) {
+        if (getRecordCount() > 0) {
+            dragStartX = clampX(event.getX());
+        }
+    }
+
+    private void onMouseDragged(MouseEvent event) {
+        if (dragStartX < 0) {
+            return;
+        }
+        final double x = clampX(event.getX());
+        selectionRectangle.setX(Math.min(dragStartX, x));
+        selectionRectangle.setY(0);
+        selectionRectangle.setWidth(Math.abs(x - dragStartX));
+        selectionRectangle.setHeight(getHeight());
+        selectionRectangle.setVisible(true);
+    }
+
+    private void onMouseReleased(MouseEvent event) {
+        if (dragStartX < 0) {
+            return;
+        }
+        final double x1 = Math.min(dragStartX, clampX(event.getX()));
+        final double x2 = Math.max(dragStartX, clampX(event.getX()));
+        dragStartX = -1;
+        if (x2 - x1 >= MIN_DRAG_DISTANCE) {
+            final int recordCount = getRecordCount();
+            final int minRecordIndex = Math.max(0, xToRecordIndex(x1));
+            final int maxRecordIndex = Math.min(recordCount - 1, Math.max(minRecordIndex, xToRecordIndex(x2) - 1));
+            algorithmInputs.minRecordIndexProperty().set(minRecordIndex);
+            algorithmInputs.maxRecordIndexProperty().set(maxRecordIndex);
+        } else if (onSeek != null) {
+            onSeek.accept(Math.min(getRecordCount() - 1, (int) (x1 * getRecordCount() / getWidth())));
+        }
+        updateSelection();
+    }
+
+    private int getRecordCount() {
+        final RecordPyramid recordPyramid = algorithmInputs.getRecordPyramid();
+        return recordPyramid != null ? recordPyramid.getRecordCount(0) : 0;
+    }
+
+    private double recordIndexToX(double recordIndex) {
+        return recordIndex * getWidth() / getRecordCount();
+    }
+
+    private int xToRecordIndex(double x) {
+        return (int) Math.round(x * getRecordCount() / getWidth());
+    }
+
+    private double clampX(double x) {
+        return Math.max(0, Math.min(getWidth(), x));
+    }
+}
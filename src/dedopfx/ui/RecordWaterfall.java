@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dedopfx.ui;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+/**
+ * A waterfall of the most recent rows (newest at the bottom) whose pixels show the intensity of each value
+ * through a {@link ColorMap}.
+ * <p>
+ * Rows are written into a ring image at a circular row offset, so adding a row only touches that row.
+ * The view is composed from the two spans of the ring image, and older rows are faded by a mask
+ * whose alpha is looked up by row age. The colour map indices of all rows are kept, so changing the
+ * colour map recolours the rows already shown.
+ */
+class RecordWaterfall extends Region {
+
+    static final int DEFAULT_ROW_COUNT = 128;
+    private static final int DECAY = 2;
+
+    private final int rowCount;
+    private final Canvas canvas;
+
+    private ColorMap colorMap = ColorMap.YELLOW;
+    private WritableImage ringImage;
+    private WritableImage decayMaskImage;
+    private byte[] ringIndices;
+    private int[] rowData;
+    private int headRowIndex;
+    private boolean dirty;
+
+    RecordWaterfall() {
+        this(DEFAULT_ROW_COUNT);
+    }
+
+    RecordWaterfall(int rowCount) {
+        this.rowCount = rowCount;
+        this.canvas = new Canvas();
+        getChildren().add(canvas);
+    }
+
+    ColorMap getColorMap() {
+        return colorMap;
+    }
+
+    void setColorMap(ColorMap colorMap) {
+        if (this.colorMap == colorMap) {
+            return;
+        }
+        this.colorMap = colorMap;
+        if (ringImage != null) {
+            for (int y = 0; y < rowCount; y++) {
+                writeRow(y);
+            }
+            dirty = true;
+            requestLayout();
+        }
+    }
+
+    void addRow(double[] values) {
+        final int rowWidth = values.length;
+        if (ringImage == null || (int) ringImage.getWidth() != rowWidth) {
+            ringImage = new WritableImage(rowWidth, rowCount);
+            ringIndices = new byte[rowWidth * rowCount];
+            rowData = new int[rowWidth];
+            headRowIndex = rowCount - 1;
+        }
+
+        headRowIndex = (headRowIndex + 1) % rowCount;
+        final int offset = headRowIndex * rowWidth;
+        for (int x = 0; x < rowWidth; x++) {
+            ringIndices[offset + x] = (byte) ColorMap.toIndex(values[x]);
+        }
+        writeRow(headRowIndex);
+
+        // Several rows added within one frame are drawn by a single layout pass
+        dirty = true;
+        requestLayout();
+    }
+
+    private void writeRow(int y) {
+        final int rowWidth = rowData.length;
+        final int offset = y * rowWidth;
+        for (int x = 0; x < rowWidth; x++) {
+            rowData[x] = colorMap.getColor(ringIndices[offset + x] & 0xff);
+        }
+        ringImage.getPixelWriter().setPixels(0, y, rowWidth, 1, PixelFormat.getIntArgbPreInstance(),
+                rowData, 0, rowWidth);
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return 0;
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return rowCount;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            dirty = true;
+        }
+        if (dirty) {
+            dirty = false;
+            draw();
+        }
+    }
+
+    private void draw() {
+        final GraphicsContext gc = canvas.getGraphicsContext2D();
+        final double width = canvas.getWidth();
+        final double height = canvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, width, height);
+        if (ringImage == null || width <= 0 || height <= 0) {
+            return;
+        }
+
+        // Oldest rows are those after the head row, they make up the upper span of the view
+        final double rowHeight = height / rowCount;
+        final double imageWidth = ringImage.getWidth();
+        final int upperRowCount = rowCount - 1 - headRowIndex;
+        final int lowerRowCount = headRowIndex + 1;
+        if (upperRowCount > 0) {
+            gc.drawImage(ringImage,
+                    0, headRowIndex + 1, imageWidth, upperRowCount,
+                    0, 0, width, upperRowCount * rowHeight);
+        }
+        gc.drawImage(ringImage,
+                0, 0, imageWidth, lowerRowCount,
+                0, upperRowCount * rowHeight, width, lowerRowCount * rowHeight);
+
+        gc.drawImage(getDecayMaskImage(), 0, 0, width, height);
+    }
+
+    private WritableImage getDecayMaskImage() {
+        if (decayMaskImage == null) {
+            final int[] maskData = new int[rowCount];
+            for (int y = 0; y < rowCount; y++) {
+                final int age = rowCount - 1 - y;
+                final int alpha = Math.min(255, DECAY * age);
+                maskData[y] = alpha << 24;
+            }
+            decayMaskImage = new WritableImage(1, rowCount);
+            decayMaskImage.getPixelWriter().setPixels(0, 0, 1, rowCount, PixelFormat.getIntArgbPreInstance(),
+                    maskData, 0, 1);
+        }
+        return decayMaskImage;
+    }
+}
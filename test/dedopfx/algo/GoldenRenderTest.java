@@ -0,0 +1,201 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.algo;
+
+import dedopfx.source.L1bSourceValues;
+import dedopfx.source.SyntheticL1bFileGenerator;
+import dedopfx.store.PropertiesStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Golden-output regression harness: renders fixed presets over a synthetic dataset headlessly to 16 bit PCM
+ * and compares the results with the reference renders in {@code test/dedopfx/algo/golden}.
+ * <p>
+ * For every preset the maximum absolute error (in LSB), the signal to noise ratio against the reference and
+ * the render time are printed. The program exits with status 1 if any preset exceeds the tolerances.
+ * Engine variants must pass this before they ship. Run with the argument {@code update} to rewrite the references
+ * after an intended change of the sound. The system property {@code golden.dir} overrides the reference directory.
+ */
+public class GoldenRenderTest {
+
+    private static final double SAMPLE_RATE = 44100.;
+    private static final int FRAME_COUNT = 44100;
+    private static final int MAX_ABS_ERROR = 2;
+    private static final double MIN_SNR_DB = 80.;
+
+    /**
+     * Renders the given number of frames for the given inputs.
+     */
+    public interface Renderer {
+        short[] render(AlgorithmInputs algorithmInputs, int frameCount) throws IOException;
+    }
+
+    private static final Map<String, String> PRESETS = new LinkedHashMap<>();
+
+    static {
+        PRESETS.put("default", "");
+        PRESETS.put("overtones", "harmonicsMode=Overtones\npartialCount=4\ncarrierWaveform=Sine");
+        PRESETS.put("undertones-sawtooth", "harmonicsMode=Undertones\npartialCount=8\ncarrierWaveform=Sawtooth");
+        PRESETS.put("modulation", "modulationEnabled=true\ncarrierWaveform=Square\nmodulationWaveform=Sine\nmodulationDepth=0.5");
+        PRESETS.put("slow-weighted", "velocity=2\namplitudeWeighting=0.25\ncarrierWaveform=Sine + Triangle");
+        PRESETS.put("fast-clipping", "velocity=64\ngain=2.0\nminRecordIndex=20\nmaxRecordIndex=80\ntuningSystem=Linear");
+        PRESETS.put("overtones-above-nyquist", "harmonicsMode=Overtones\npartialCount=8\ncarrierWaveform=Square");
+        PRESETS.put("naive", "bandLimited=false");
+    }
+
+    public static void main(String[] args) throws IOException {
+        final boolean update = args.length > 0 && args[0].equals("update");
+        final File directory = new File(System.getProperty("golden.dir", "test/dedopfx/algo/golden"));
+        System.exit(run(GoldenRenderTest::render, directory, update) ? 0 : 1);
+    }
+
+    /**
+     * @return {@code true} if all presets are within the tolerances.
+     */
+    public static boolean run(Renderer renderer, File directory, boolean update) throws IOException {
+        final L1bSourceValues dataset = createDataset();
+        boolean passed = true;
+        System.out.printf("%-22s %14s %10s %14s %10s%n", "Preset", "Max abs error", "SNR [dB]", "Render [ms]", "Result");
+        for (Map.Entry<String, String> preset : PRESETS.entrySet()) {
+            final AlgorithmInputs algorithmInputs = createInputs(dataset, preset.getValue());
+            final long t0 = System.nanoTime();
+            final short[] samples = renderer.render(algorithmInputs, FRAME_COUNT);
+            final double renderMillis = (System.nanoTime() - t0) * 1e-6;
+
+            final File referenceFile = new File(directory, preset.getKey() + ".pcm.gz");
+            if (update) {
+                writeSamples(referenceFile, samples);
+                System.out.printf("%-22s %14s %10s %14.1f %10s%n", preset.getKey(), "", "", renderMillis, "UPDATED");
+                continue;
+            }
+
+            final short[] reference = readSamples(referenceFile);
+            int maxAbsError = reference.length == samples.length ? 0 : Integer.MAX_VALUE;
+            double signalEnergy = 0.;
+            double errorEnergy = 0.;
+            for (int i = 0; i < Math.min(reference.length, samples.length); i++) {
+                final int error = samples[i] - reference[i];
+                maxAbsError = Math.max(maxAbsError, Math.abs(error));
+                signalEnergy += (double) reference[i] * reference[i];
+                errorEnergy += (double) error * error;
+            }
+            final double snr = errorEnergy > 0. ? 10. * Math.log10(signalEnergy / errorEnergy) : Double.POSITIVE_INFINITY;
+            final boolean presetPassed = maxAbsError <= MAX_ABS_ERROR && snr >= MIN_SNR_DB;
+            passed &= presetPassed;
+            System.out.printf("%-22s %14d %10.1f %14.1f %10s%n",
+                              preset.getKey(), maxAbsError, snr, renderMillis, presetPassed ? "PASSED" : "FAILED");
+        }
+        return passed;
+    }
+
+    /**
+     * The reference renderer, the sample stream used for playback with a transport.
+     */
+    static short[] render(AlgorithmInputs algorithmInputs, int frameCount) throws IOException {
+        return render(new Algorithm(algorithmInputs, null), frameCount);
+    }
+
+    /**
+     * Renders the given number of frames with the given engine.
+     */
+    static short[] render(SynthesisEngine algorithm, int frameCount) throws IOException {
+        final AlgorithmInputs algorithmInputs = algorithm.getAlgorithmInputs();
+        final Transport transport = new Transport(algorithmInputs);
+        final AlgorithmSampleInputStream inputStream = new AlgorithmSampleInputStream(SAMPLE_RATE, algorithm);
+        inputStream.setTransport(transport);
+        transport.rewind();
+        final byte[] bytes = new byte[2 * frameCount];
+        int offset = 0;
+        while (offset < bytes.length) {
+            offset += inputStream.read(bytes, offset, Math.min(4096, bytes.length - offset));
+        }
+        final short[] samples = new short[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            samples[i] = (short) ((bytes[2 * i] << 8) | (bytes[2 * i + 1] & 0xff));
+        }
+        return samples;
+    }
+
+    private static L1bSourceValues createDataset() throws IOException {
+        final File file = File.createTempFile("dedopfx-golden", ".nc");
+        try {
+            new SyntheticL1bFileGenerator(200, 128, SyntheticL1bFileGenerator.EchoShape.MIXED, 0.1, 42L).write(file);
+            return L1bSourceValues.read(file);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    private static AlgorithmInputs createInputs(L1bSourceValues dataset, String preset) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("minSourceValue", String.valueOf(dataset.getMinValue()));
+        properties.setProperty("maxSourceValue", String.valueOf(dataset.getMaxValue()));
+        properties.setProperty("maxRecordIndex", String.valueOf(dataset.getSourceValues().length - 1));
+        properties.load(new StringReader(preset));
+        final AlgorithmInputs algorithmInputs = new AlgorithmInputs();
+        algorithmInputs.setDefaults();
+        algorithmInputs.fromStore(new PropertiesStore(properties));
+        algorithmInputs.setSourceValues(dataset.getSourceValues(), dataset.getMinValue(), dataset.getMaxValue());
+        return algorithmInputs;
+    }
+
+    private static short[] readSamples(File file) throws IOException {
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            final short[] samples = new short[inputStream.readInt()];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = inputStream.readShort();
+            }
+            return samples;
+        }
+    }
+
+    private static void writeSamples(File file, short[] samples) throws IOException {
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Failed to create " + file.getParentFile());
+        }
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+            outputStream.writeInt(samples.length);
+            for (short sample : samples) {
+                outputStream.writeShort(sample);
+            }
+        }
+    }
+}
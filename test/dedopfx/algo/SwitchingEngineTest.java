@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.algo;
+
+import dedopfx.store.PropertiesStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Checks the synthesis engine SPI: discovery, persistence of the selection, the golden presets rendered through
+ * a {@link SwitchingEngine}, and hot-swapping engines with a crossfade. Exits with status 1 if a check fails.
+ */
+public class SwitchingEngineTest {
+
+    private static final double SAMPLE_RATE = 44100.;
+
+    private static boolean passed = true;
+
+    public static void main(String[] args) throws IOException {
+        checkDiscovery();
+        checkStore();
+        checkCrossfade();
+        checkGolden();
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static void checkDiscovery() {
+        final List<SynthesisEngineProvider> providers = SynthesisEngines.getProviders();
+        check("additive engine listed first", providers.get(0).getId().equals(AdditiveEngineProvider.ID));
+        check("unknown engine falls back to default",
+              SynthesisEngines.getProvider("unknown").getId().equals(SynthesisEngines.DEFAULT_ENGINE_ID));
+        final AlgorithmInputs algorithmInputs = new AlgorithmInputs();
+        check("additive engine is the algorithm",
+              providers.get(0).createEngine(algorithmInputs, null) instanceof Algorithm);
+    }
+
+    private static void checkStore() {
+        final AlgorithmInputs algorithmInputs = new AlgorithmInputs();
+        algorithmInputs.setEngine("constant");
+        final Properties properties = new Properties();
+        algorithmInputs.toStore(new PropertiesStore(properties));
+        final AlgorithmInputs restoredInputs = new AlgorithmInputs();
+        restoredInputs.fromStore(new PropertiesStore(properties));
+        check("engine stored", "constant".equals(restoredInputs.getEngine()));
+        restoredInputs.fromStore(new PropertiesStore(new Properties()));
+        check("engine defaults", AlgorithmInputs.DEFAULT_ENGINE.equals(restoredInputs.getEngine()));
+    }
+
+    private static void checkCrossfade() {
+        final AlgorithmInputs algorithmInputs = new AlgorithmInputs();
+        algorithmInputs.setEngine("up");
+        final List<Integer> observedRecords = new ArrayList<>();
+        final SwitchingEngine engine = new SwitchingEngine(algorithmInputs,
+                (recordIndex, recordCount, inputSamples) -> observedRecords.add(recordIndex),
+                Arrays.asList(new ConstantEngineProvider("up", 1., 1), new ConstantEngineProvider("down", -1., 2)));
+        engine.setSampleRate(SAMPLE_RATE);
+        final int fadeFrameCount = (int) (SwitchingEngine.CROSSFADE_TIME * SAMPLE_RATE);
+        final double maxStep = 2. / (fadeFrameCount + 1) + 1e-12;
+
+        final double[] output = new double[4 * fadeFrameCount];
+        engine.render(0., output, 0, fadeFrameCount);
+        algorithmInputs.setEngine("down");
+        engine.render(fadeFrameCount / SAMPLE_RATE, output, fadeFrameCount, fadeFrameCount / 2);
+        // Switching back in the middle of the crossfade reverses it
+        algorithmInputs.setEngine("up");
+        final int offset = fadeFrameCount + fadeFrameCount / 2;
+        engine.render(offset / SAMPLE_RATE, output, offset, output.length - offset);
+
+        check("starts with selected engine", output[fadeFrameCount - 1] == 1.);
+        boolean smooth = true;
+        for (int i = 1; i < output.length; i++) {
+            smooth &= Math.abs(output[i] - output[i - 1]) <= maxStep;
+        }
+        check("crossfades without steps", smooth);
+        check("crossfade reversed", output[offset] > output[offset - 1]);
+        check("crossfade completes", output[output.length - 1] == 1.);
+        check("only the selected engine posts records", observedRecords.equals(Arrays.asList(1, 2)));
+        check("record index of selected engine", engine.getCurrentRecordIndex() == 1);
+    }
+
+    private static void checkGolden() throws IOException {
+        final File directory = new File(System.getProperty("golden.dir", "test/dedopfx/algo/golden"));
+        check("golden presets through the switching engine", GoldenRenderTest.run(
+                (algorithmInputs, frameCount) -> GoldenRenderTest.render(new SwitchingEngine(algorithmInputs, null), frameCount),
+                directory, false));
+    }
+
+    private static void check(String name, boolean condition) {
+        System.out.printf("%-50s %s%n", name, condition ? "ok" : "FAILED");
+        passed &= condition;
+    }
+
+    /**
+     * An engine rendering a constant, which reports a fixed record index whenever it is selected by a time.
+     */
+    private static class ConstantEngineProvider implements SynthesisEngineProvider {
+        private final String id;
+        private final double value;
+        private final int recordIndex;
+
+        ConstantEngineProvider(String id, double value, int recordIndex) {
+            this.id = id;
+            this.value = value;
+            this.recordIndex = recordIndex;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return id;
+        }
+
+        @Override
+        public String[] getParameterKeys() {
+            return new String[0];
+        }
+
+        @Override
+        public double getCostPerBin() {
+            return 0.;
+        }
+
+        @Override
+        public SynthesisEngine createEngine(AlgorithmInputs algorithmInputs, Algorithm.RecordObserver recordObserver) {
+            return new SynthesisEngine() {
+                private double sampleRate;
+                private int currentRecordIndex = -1;
+
+                @Override
+                public AlgorithmInputs getAlgorithmInputs() {
+                    return algorithmInputs;
+                }
+
+                @Override
+                public int getCurrentRecordIndex() {
+                    return currentRecordIndex;
+                }
+
+                @Override
+                public double getSampleRate() {
+                    return sampleRate;
+                }
+
+                @Override
+                public void setSampleRate(double sampleRate) {
+                    this.sampleRate = sampleRate;
+                }
+
+                @Override
+                public void setTime(double time) {
+                    if (currentRecordIndex != recordIndex) {
+                        currentRecordIndex = recordIndex;
+                        if (recordObserver != null) {
+                            recordObserver.onRecord(recordIndex, 3, new double[0]);
+                        }
+                    }
+                }
+
+                @Override
+                public void setTime(double time, Transport transport) {
+                    setTime(time);
+                }
+
+                @Override
+                public double computePreGainOutput() {
+                    return value;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.audio;
+
+import dedopfx.algo.Algorithm;
+import dedopfx.algo.AlgorithmInputs;
+import dedopfx.algo.AlgorithmSampleInputStream;
+import dedopfx.algo.RecordMailbox;
+import dedopfx.algo.RenderCache;
+import dedopfx.algo.SwitchingEngine;
+import dedopfx.algo.SynthesisEngine;
+import dedopfx.algo.Transport;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Asserts that the steady-state render path does not allocate, for all {@link Harmonics} modes and waveforms,
+ * with and without modulation. Heap allocations are measured per thread with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} after a warm-up.
+ * <p>
+ * Checks the sample stream with all collaborators attached on the calling thread, and the playback loop of
+ * {@link PlayAudioTask} into a {@link SimulatedAudioSink} on its own thread. Exits with status 1 if any
+ * bytes were allocated.
+ */
+public class AllocationTest {
+
+    private static final int SAMPLE_RATE = PlayAudioTask.SAMPLE_RATE;
+    private static final int WARMUP_SECONDS = 20;
+    private static final int MEASURED_SECONDS = 2;
+    private static final boolean[] MODULATION_ENABLED = {false, true};
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        final AlgorithmInputs algorithmInputs = createInputs();
+        final RecordMailbox recordMailbox = new RecordMailbox();
+        final SynthesisEngine algorithm = new SwitchingEngine(algorithmInputs, recordMailbox);
+        final File cacheDirectory = Files.createTempDirectory("dedopfx-allocation").toFile();
+        final RenderCache renderCache = new RenderCache(cacheDirectory, RenderCache.DEFAULT_QUOTA);
+
+        boolean passed = true;
+        int warmupSeconds = WARMUP_SECONDS;
+        for (Harmonics harmonicsMode : Harmonics.values()) {
+            for (Waveform waveform : Waveform.WAVEFORMS) {
+                for (boolean modulationEnabled : MODULATION_ENABLED) {
+                    algorithmInputs.setHarmonicsMode(harmonicsMode);
+                    algorithmInputs.carrierWaveformProperty().setValue(waveform);
+                    algorithmInputs.setModulationEnabled(modulationEnabled);
+                    final long allocatedBytes = measureStream(algorithm, algorithmInputs, recordMailbox, renderCache,
+                                                              warmupSeconds);
+                    warmupSeconds = 1;
+                    final boolean ok = allocatedBytes == 0;
+                    passed &= ok;
+                    System.out.printf("%-12s %-22s modulation=%-5s %8d bytes/s %s%n", harmonicsMode, waveform, modulationEnabled,
+                                      allocatedBytes / MEASURED_SECONDS, ok ? "PASSED" : "FAILED");
+                }
+            }
+        }
+
+        passed &= checkPlaybackLoop(algorithm, algorithmInputs);
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * @return The bytes allocated while rendering {@link #MEASURED_SECONDS} after the warm-up.
+     * Runs in its own method, so that a deoptimization of the caller, e.g. when the JIT sees a new waveform,
+     * cannot rematerialize scalar-replaced objects of the caller within the measurement.
+     */
+    private static long measureStream(SynthesisEngine algorithm, AlgorithmInputs algorithmInputs, RecordMailbox recordMailbox,
+                                      RenderCache renderCache, int warmupSeconds) throws Exception {
+        final PlaybackTimeline playbackTimeline = new PlaybackTimeline();
+        final Transport transport = new Transport(algorithmInputs);
+        final AlgorithmSampleInputStream inputStream = new AlgorithmSampleInputStream(SAMPLE_RATE, algorithm);
+        inputStream.setLevelMeter(new LevelMeter());
+        inputStream.setSpectrumAnalyzer(new SpectrumAnalyzer());
+        inputStream.setPlaybackTimeline(playbackTimeline);
+        inputStream.setTransport(transport);
+        inputStream.setWavRecorder(new WavRecorder(SAMPLE_RATE));
+        transport.rewind();
+        inputStream.setRenderCache(renderCache);
+        playbackTimeline.start(new SimulatedAudioSink());
+
+        final byte[] block = new byte[2 * 256];
+        render(inputStream, block, recordMailbox, warmupSeconds);
+        long allocatedBytes = measureRender(inputStream, block, recordMailbox);
+        if (allocatedBytes > 0) {
+            // The JIT may still be recompiling after a mode change, which can allocate once, allocations of the
+            // render path itself show up again
+            allocatedBytes = measureRender(inputStream, block, recordMailbox);
+        }
+        return allocatedBytes;
+    }
+
+    private static long measureRender(AlgorithmSampleInputStream inputStream, byte[] block,
+                                      RecordMailbox recordMailbox) throws Exception {
+        final long bytes0 = THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        render(inputStream, block, recordMailbox, MEASURED_SECONDS);
+        final long bytes1 = THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        return bytes1 - bytes0;
+    }
+
+    private static void render(AlgorithmSampleInputStream inputStream, byte[] block, RecordMailbox recordMailbox,
+                               int seconds) throws Exception {
+        final Algorithm.RecordObserver ignored = (recordIndex, recordCount, inputSamples) -> {
+        };
+        for (int frameCount = 0; frameCount < seconds * SAMPLE_RATE; frameCount += block.length / 2) {
+            inputStream.read(block, 0, block.length);
+            // Keep the mailbox from filling up, like the UI does once per frame
+            recordMailbox.drainTo(ignored);
+        }
+    }
+
+    private static boolean checkPlaybackLoop(SynthesisEngine algorithm, AlgorithmInputs algorithmInputs) throws Exception {
+        final PlaybackTimeline playbackTimeline = new PlaybackTimeline();
+        final PlayAudioTask playAudioTask = new PlayAudioTask(algorithm, new LevelMeter(), new SpectrumAnalyzer(),
+                                                              playbackTimeline, new Transport(algorithmInputs),
+                                                              new WavRecorder(SAMPLE_RATE), null,
+                                                              new SimulatedAudioSink(), true);
+        final long[] allocatedBytes = new long[1];
+        final long endTime = System.nanoTime() + (5L + MEASURED_SECONDS) * 1_000_000_000L;
+        final long measureTime = endTime - MEASURED_SECONDS * 1_000_000_000L;
+        final Thread thread = new Thread(() -> {
+            final long threadId = Thread.currentThread().getId();
+            final long[] bytes0 = {-1L};
+            try {
+                playAudioTask.play(() -> {
+                    final long now = System.nanoTime();
+                    if (bytes0[0] < 0 && now > measureTime) {
+                        bytes0[0] = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+                    }
+                    if (now > endTime) {
+                        allocatedBytes[0] = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - bytes0[0];
+                        return true;
+                    }
+                    return false;
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+                allocatedBytes[0] = -1;
+            }
+        }, "Audio");
+        thread.start();
+        thread.join();
+        final boolean ok = allocatedBytes[0] == 0;
+        System.out.printf("%-48s %8d bytes/s %s%n", "Playback loop (low latency)", allocatedBytes[0] / MEASURED_SECONDS,
+                          ok ? "PASSED" : "FAILED");
+        return ok;
+    }
+
+    private static AlgorithmInputs createInputs() {
+        final Random random = new Random(42);
+        final double[][] sourceValues = new double[200][256];
+        for (double[] record : sourceValues) {
+            for (int i = 0; i < record.length; i++) {
+                record[i] = random.nextDouble();
+            }
+        }
+        final AlgorithmInputs algorithmInputs = new AlgorithmInputs();
+        algorithmInputs.setSourceValues(sourceValues, 0., 1.);
+        algorithmInputs.minSourceValueProperty().set(0.);
+        algorithmInputs.maxSourceValueProperty().set(1.);
+        algorithmInputs.maxRecordIndexProperty().set(sourceValues.length - 1);
+        algorithmInputs.partialCountProperty().set(4);
+        return algorithmInputs;
+    }
+}
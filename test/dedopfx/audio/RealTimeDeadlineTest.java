@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.audio;
+
+import dedopfx.algo.Algorithm;
+import dedopfx.algo.AlgorithmInputs;
+import dedopfx.algo.Transport;
+import dedopfx.source.L1bSourceValues;
+import dedopfx.source.SyntheticL1bFileGenerator;
+import dedopfx.store.PropertiesStore;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Properties;
+
+/**
+ * Checks that a preset sustains real-time playback without a sound card. Plays a synthetic dataset through
+ * {@link PlayAudioTask} into a {@link SimulatedAudioSink} while background threads load the CPU, and exits with
+ * status 1 if the sink records more underruns than allowed.
+ * <p>
+ * Configured by system properties: {@code duration} (seconds, default 5), {@code lowLatency} (default false),
+ * {@code bufferFrames} (sink buffer in normal mode, default {@link SimulatedAudioSink#DEFAULT_BUFFER_FRAME_COUNT}),
+ * {@code periodFrames}, {@code clockRate}, {@code jitterMicros} (default 200), {@code loadThreads} (busy background
+ * threads, default 0), {@code maxUnderruns} (default 0), {@code bins} (default 256) and {@code preset}
+ * (algorithm settings as {@code key=value} pairs separated by semicolons).
+ * <p>
+ * {@code mvn -B verify} in the benchmarks module runs the test in the default and in the low latency mode, both
+ * with a budget of 0 underruns: any period the sink plays as silence is an audible dropout.
+ */
+public class RealTimeDeadlineTest {
+
+    // Keeps the JIT from eliminating the background load
+    private static volatile double sink;
+
+    public static void main(String[] args) throws Exception {
+        final double duration = Double.parseDouble(System.getProperty("duration", "5"));
+        final boolean lowLatency = Boolean.getBoolean("lowLatency");
+        final int bufferFrameCount = Integer.getInteger("bufferFrames", SimulatedAudioSink.DEFAULT_BUFFER_FRAME_COUNT);
+        final int periodFrameCount = Integer.getInteger("periodFrames", SimulatedAudioSink.DEFAULT_PERIOD_FRAME_COUNT);
+        final double clockRate = Double.parseDouble(System.getProperty("clockRate", "1"));
+        final long jitterNanos = 1000L * Integer.getInteger("jitterMicros", 200);
+        final int loadThreadCount = Integer.getInteger("loadThreads", 0);
+        final long maxUnderrunCount = Long.getLong("maxUnderruns", 0);
+        final int binCount = Integer.getInteger("bins", 256);
+        final String preset = System.getProperty("preset", "").replace(';', '\n');
+
+        final AlgorithmInputs algorithmInputs = createInputs(binCount, preset);
+        final Algorithm algorithm = new Algorithm(algorithmInputs, null);
+        final PlaybackTimeline playbackTimeline = new PlaybackTimeline();
+        final SimulatedAudioSink audioSink = new SimulatedAudioSink(bufferFrameCount, periodFrameCount,
+                                                                    clockRate, jitterNanos, 42L);
+        final PlayAudioTask playAudioTask = new PlayAudioTask(algorithm, null, null, playbackTimeline,
+                                                              new Transport(algorithmInputs), null, null,
+                                                              audioSink, lowLatency);
+
+        for (int i = 0; i < loadThreadCount; i++) {
+            final Thread thread = new Thread(RealTimeDeadlineTest::burnCpu, "Load-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        final long endTime = System.nanoTime() + (long) (duration * 1e9);
+        playAudioTask.play(() -> System.nanoTime() > endTime);
+
+        final long underrunCount = audioSink.getUnderrunCount();
+        final boolean passed = underrunCount <= maxUnderrunCount;
+        System.out.printf("Played %.1f s, %d underruns (%d frames of silence), %d low latency fill adjustments, %d load threads%n",
+                          audioSink.getLongFramePosition() / (double) PlayAudioTask.SAMPLE_RATE,
+                          underrunCount, audioSink.getUnderrunFrameCount(), playbackTimeline.getUnderrunCount(),
+                          loadThreadCount);
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static AlgorithmInputs createInputs(int binCount, String preset) throws Exception {
+        final File file = File.createTempFile("dedopfx-deadline", ".nc");
+        final L1bSourceValues dataset;
+        try {
+            new SyntheticL1bFileGenerator(500, binCount, SyntheticL1bFileGenerator.EchoShape.MIXED, 0.1, 42L).write(file);
+            dataset = L1bSourceValues.read(file);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+        final Properties properties = new Properties();
+        properties.setProperty("minSourceValue", String.valueOf(dataset.getMinValue()));
+        properties.setProperty("maxSourceValue", String.valueOf(dataset.getMaxValue()));
+        properties.setProperty("maxRecordIndex", String.valueOf(dataset.getSourceValues().length - 1));
+        properties.load(new StringReader(preset));
+        final AlgorithmInputs algorithmInputs = new AlgorithmInputs();
+        algorithmInputs.setDefaults();
+        algorithmInputs.fromStore(new PropertiesStore(properties));
+        algorithmInputs.setSourceValues(dataset.getSourceValues(), dataset.getMinValue(), dataset.getMaxValue());
+        return algorithmInputs;
+    }
+
+    private static void burnCpu() {
+        double x = 0.;
+        while (true) {
+            for (int i = 0; i < 1_000_000; i++) {
+                x += Math.sin(x + i);
+            }
+            sink = x;
+        }
+    }
+}
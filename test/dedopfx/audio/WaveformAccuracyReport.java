@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.audio;
+
+import java.util.Random;
+
+/**
+ * Compares the accuracy of the {@link Waveform} implementations with the table-based and polynomial alternatives
+ * whose throughput the JMH benchmark {@code dedopfx.audio.WaveformBenchmark} in the benchmarks module measures.
+ * For every waveform in {@link Waveform#WAVEFORMS} the report lists the maximum and RMS error against the current
+ * implementation, which is exact ({@link Math#sin(double)} for the sine). The band-limited variant
+ * {@link Waveform#compute(double, double)} is evaluated at the default maximum frequency, its error is the size
+ * of the anti-aliasing correction.
+ */
+public class WaveformAccuracyReport {
+
+    static final double MAX_PHASE = 1000.;
+    static final double BAND_LIMITED_DT = 4400. / 44100.;
+
+    private static final int ERROR_SAMPLE_COUNT = 1 << 20;
+
+    public static void main(String[] args) {
+        System.out.printf("%-30s %-20s %12s %12s%n", "Waveform", "Implementation", "Max error", "RMS error");
+        for (Waveform waveform : Waveform.WAVEFORMS) {
+            report(waveform, "Band-limited", new BandLimitedWaveform(waveform, BAND_LIMITED_DT));
+            if (waveform == Waveform.SINE) {
+                report(waveform, "Polynomial", new PolynomialSine());
+            }
+            report(waveform, "Table 4096", new TableWaveform(waveform, 4096, false));
+            report(waveform, "Table 4096 linear", new TableWaveform(waveform, 4096, true));
+            report(waveform, "Table 256 linear", new TableWaveform(waveform, 256, true));
+        }
+    }
+
+    private static void report(Waveform reference, String name, Waveform waveform) {
+        final Random random = new Random(7);
+        double maxError = 0.;
+        double sumOfSquares = 0.;
+        for (int i = 0; i < ERROR_SAMPLE_COUNT; i++) {
+            final double t = MAX_PHASE * random.nextDouble();
+            final double error = Math.abs(waveform.compute(t) - reference.compute(t));
+            maxError = Math.max(maxError, error);
+            sumOfSquares += error * error;
+        }
+        System.out.printf("%-30s %-20s %12.3g %12.3g%n",
+                          reference, name, maxError, Math.sqrt(sumOfSquares / ERROR_SAMPLE_COUNT));
+    }
+
+    /**
+     * Calls the band-limited variant of a waveform at a fixed phase increment.
+     */
+    static class BandLimitedWaveform implements Waveform {
+        private final Waveform waveform;
+        private final double dt;
+
+        BandLimitedWaveform(Waveform waveform, double dt) {
+            this.waveform = waveform;
+            this.dt = dt;
+        }
+
+        @Override
+        public double compute(double t) {
+            return waveform.compute(t, dt);
+        }
+    }
+
+    /**
+     * One period of a waveform sampled into a table, read with or without linear interpolation.
+     */
+    static class TableWaveform implements Waveform {
+        private final Waveform waveform;
+        private final int size;
+        private final boolean interpolated;
+        private final double[] table;
+
+        TableWaveform(Waveform waveform, int size, boolean interpolated) {
+            this.waveform = waveform;
+            this.size = size;
+            this.interpolated = interpolated;
+            // One extra entry, so interpolation needs no wrap around
+            this.table = new double[size + 1];
+            for (int i = 0; i <= size; i++) {
+                table[i] = waveform.compute((double) i / size);
+            }
+        }
+
+        @Override
+        public double compute(double t) {
+            final double x = (t - Math.floor(t)) * size;
+            final int i = (int) x;
+            if (!interpolated) {
+                return table[i];
+            }
+            final double a = table[i];
+            return a + (x - i) * (table[i + 1] - a);
+        }
+
+        @Override
+        public String toString() {
+            return waveform + " (table)";
+        }
+    }
+
+    /**
+     * A sine computed by an odd Taylor polynomial of degree 11 after folding the phase into a quarter period.
+     */
+    static class PolynomialSine implements Waveform {
+        private static final double C3 = -1. / 6.;
+        private static final double C5 = 1. / 120.;
+        private static final double C7 = -1. / 5040.;
+        private static final double C9 = 1. / 362880.;
+        private static final double C11 = -1. / 39916800.;
+
+        @Override
+        public double compute(double t) {
+            double r = t - Math.floor(t + 0.5);
+            if (r > 0.25) {
+                r = 0.5 - r;
+            } else if (r < -0.25) {
+                r = -0.5 - r;
+            }
+            final double z = 2. * Math.PI * r;
+            final double z2 = z * z;
+            return z * (1. + z2 * (C3 + z2 * (C5 + z2 * (C7 + z2 * (C9 + z2 * C11)))));
+        }
+
+        @Override
+        public String toString() {
+            return "Sine (polynomial)";
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 by Norman Fomferra (https://github.com/forman) and contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package dedopfx.source;
+
+import ucar.ma2.ArrayInt;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Writes synthetic L1B NetCDF files with the variables read by {@link L1bSourceValues}, so that tests and
+ * benchmarks do not depend on large ESA test products.
+ * <p>
+ * Echoes are modelled per record: a leading edge that follows a random walk over the range window, a shape
+ * ({@link EchoShape}) behind it, multiplicative speckle and an additive thermal noise floor. The output is fully
+ * determined by the parameters and the seed.
+ * <p>
+ * Usage: {@code SyntheticL1bFileGenerator <file> [<recordCount> [<binCount> [<echoShape> [<noiseLevel> [<seed>]]]]]}
+ */
+public class SyntheticL1bFileGenerator {
+
+    public enum EchoShape {
+        /**
+         * Diffuse surface, an error function leading edge followed by an exponentially decaying trailing edge.
+         */
+        OCEAN,
+        /**
+         * Specular surface such as leads in sea ice, a narrow peak.
+         */
+        SPECULAR,
+        /**
+         * Randomly alternates between ocean and specular echoes in stretches of records.
+         */
+        MIXED
+    }
+
+    private static final String RECORD_DIM_NAME = "time_l1b_echo_sar_ku";
+    private static final String BIN_DIM_NAME = "echo_sample_ind";
+    private static final int MAX_COUNT = 65535;
+
+    private final int recordCount;
+    private final int binCount;
+    private final EchoShape echoShape;
+    private final double noiseLevel;
+    private final long seed;
+
+    public SyntheticL1bFileGenerator(int recordCount, int binCount, EchoShape echoShape, double noiseLevel, long seed) {
+        this.recordCount = recordCount;
+        this.binCount = binCount;
+        this.echoShape = echoShape;
+        this.noiseLevel = noiseLevel;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: SyntheticL1bFileGenerator <file> [<recordCount> [<binCount> [<echoShape> [<noiseLevel> [<seed>]]]]]");
+            System.exit(1);
+        }
+        final File file = new File(args[0]);
+        final int recordCount = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        final int binCount = args.length > 2 ? Integer.parseInt(args[2]) : 128;
+        final EchoShape echoShape = args.length > 3 ? EchoShape.valueOf(args[3].toUpperCase()) : EchoShape.OCEAN;
+        final double noiseLevel = args.length > 4 ? Double.parseDouble(args[4]) : 0.1;
+        final long seed = args.length > 5 ? Long.parseLong(args[5]) : 42L;
+        new SyntheticL1bFileGenerator(recordCount, binCount, echoShape, noiseLevel, seed).write(file);
+        System.out.printf("Written %s (%d records, %d bins, %.1f MB)%n", file, recordCount, binCount, file.length() / 1e6);
+    }
+
+    public void write(File file) throws IOException {
+        final NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath());
+        try {
+            writer.addDimension(null, RECORD_DIM_NAME, recordCount);
+            writer.addDimension(null, BIN_DIM_NAME, binCount);
+            final Variable countsVar = writer.addVariable(null, L1bSourceValues.WAVEFORM_COUNTS_VAR_NAME, DataType.INT,
+                                                          RECORD_DIM_NAME + " " + BIN_DIM_NAME);
+            writer.addVariableAttribute(countsVar, new Attribute("long_name", "Synthetic SAR echo power"));
+            writer.addVariableAttribute(countsVar, new Attribute("scale_factor", 0.001));
+            final Variable scalingsVar = writer.addVariable(null, L1bSourceValues.WAVEFORM_SCALINGS_VAR_NAME, DataType.INT,
+                                                            RECORD_DIM_NAME);
+            writer.addVariableAttribute(scalingsVar, new Attribute("long_name", "Synthetic echo scale factor"));
+            writer.addVariableAttribute(scalingsVar, new Attribute("scale_factor", 0.01));
+            writer.addGroupAttribute(null, new Attribute("title", "Synthetic L1B test product"));
+            writer.create();
+
+            final ArrayInt.D2 counts = new ArrayInt.D2(recordCount, binCount);
+            final ArrayInt.D1 scalings = new ArrayInt.D1(recordCount);
+            final double[] echo = new double[binCount];
+            final Random random = new Random(seed);
+            double leadingEdge = 0.3 * binCount;
+            boolean specular = echoShape == EchoShape.SPECULAR;
+            for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+                leadingEdge += random.nextGaussian() * 0.05 * binCount / Math.sqrt(binCount);
+                leadingEdge = Math.max(0.1 * binCount, Math.min(0.7 * binCount, leadingEdge));
+                if (echoShape == EchoShape.MIXED && random.nextDouble() < 0.01) {
+                    specular = !specular;
+                }
+                computeEcho(echo, leadingEdge, specular, random);
+                double maxPower = 0.;
+                for (double power : echo) {
+                    maxPower = Math.max(maxPower, power);
+                }
+                // Counts use the full integer range, the scale factor carries the echo's absolute power
+                final double scaling = specular ? 50. + 20. * random.nextDouble() : 10. + 5. * random.nextDouble();
+                scalings.set(recordIndex, (int) Math.round(100. * scaling));
+                for (int binIndex = 0; binIndex < binCount; binIndex++) {
+                    counts.set(recordIndex, binIndex, (int) Math.round(MAX_COUNT * echo[binIndex] / maxPower));
+                }
+            }
+            writer.write(countsVar, counts);
+            writer.write(scalingsVar, scalings);
+        } catch (InvalidRangeException e) {
+            throw new IOException(e);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void computeEcho(double[] echo, double leadingEdge, boolean specular, Random random) {
+        final double width = specular ? 0.5 : 0.02 * binCount;
+        final double decay = specular ? 1.5 : 0.25 * binCount;
+        for (int binIndex = 0; binIndex < echo.length; binIndex++) {
+            final double x = binIndex - leadingEdge;
+            double power;
+            if (specular) {
+                power = Math.exp(-0.5 * (x / width) * (x / width)) + (x > 0 ? 0.1 * Math.exp(-x / decay) : 0.);
+            } else {
+                power = 0.5 * (1. + erf(x / (Math.sqrt(2.) * width))) * (x > 0 ? Math.exp(-x / decay) : 1.);
+            }
+            // Speckle is exponentially distributed for a single look, multi-looking narrows it
+            final double speckle = 1. + noiseLevel * random.nextGaussian();
+            echo[binIndex] = Math.max(0., power * speckle) + 0.5 * noiseLevel * random.nextDouble() + 1e-6;
+        }
+    }
+
+    /**
+     * The error function, Abramowitz and Stegun 7.1.26, accurate to 1.5e-7.
+     */
+    private static double erf(double x) {
+        final double t = 1. / (1. + 0.3275911 * Math.abs(x));
+        final double y = 1. - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+                * Math.exp(-x * x);
+        return x >= 0 ? y : -y;
+    }
+}